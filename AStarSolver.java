@@ -0,0 +1,166 @@
+import java.util.*;
+
+/**
+ * A push-optimal A* solver for a Sokoban puzzle.  The cost of a node is its number of
+ * pushes and the heuristic is the cheapest matching of boxes to targets (see
+ * MatchingHeuristic), which never overestimates and falls by at most one per push, so
+ * the first solved node taken from the open list has the fewest pushes possible.
+ * The matching is solved once, for the start; each push updates its parent's matching,
+ * which the child keeps until it is expanded.  Where a corral has to be opened first,
+ * only the pushes into it are searched (see CorralPruner).
+ * <p>
+ * The pushes of the states seen so far are kept in a TranspositionTable with a fixed
+ * byte budget rather than a map of nodes, so only the nodes still on the open list (and
+ * their ancestors) are Java objects.  A state forgotten by the table may be expanded
+ * again, which costs time but never the optimality of the solution.
+ * <p>
+ * With a weight above one the heuristic counts that many times over (weighted A*), so
+ * the search heads for a solution far sooner but the solution may have up to weight
+ * times the fewest pushes.
+ * <p>
+ * Even with deadlocked positions and needless corral pushes pruned, a push-optimal
+ * solution can only be found in seconds for the easier levels: of screens 1 to 10,
+ * screens 1 and 6 are solved in about a second, screen 7 in about 15 seconds, and the
+ * rest run out of time.  The "weighted" solver (see Solver.getInstance) solves screens
+ * 1, 2, 6 and 7 in a few seconds, but not push-optimally.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class AStarSolver extends Solver {
+	/**
+	 * Construct a solver for the current position of a Sokoban puzzle
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 */
+	public AStarSolver(Sokoban puzzle) {
+		super(puzzle);
+	}
+
+	/**
+	 * Construct a solver for a standard Sokoban screen file passed as a String
+	 *
+	 * @param screen the screen file as a String
+	 */
+	public AStarSolver(String screen) {
+		super(screen);
+	}
+
+	/**
+	 * Sets the memory used by the transposition table
+	 *
+	 * @param bytes the table size in bytes
+	 */
+	public void setTableBytes(long bytes) {
+		if (bytes <= 0)
+			throw new IllegalArgumentException("table size must be positive");
+		tableBytes = bytes;
+	}
+
+	/**
+	 * Sets the weight of the heuristic: 1 (the default) finds a push-optimal solution,
+	 * higher weights find a solution sooner with at most weight times the fewest pushes
+	 *
+	 * @param weight the weight (at least 1)
+	 */
+	public void setWeight(int weight) {
+		if (weight < 1)
+			throw new IllegalArgumentException("weight must be at least 1");
+		this.weight = weight;
+	}
+
+	/**
+	 * Gets the weight of the heuristic
+	 *
+	 * @return the weight (1 for a push-optimal search)
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Gets the transposition table used by the last solve
+	 *
+	 * @return the table (or null before the first solve)
+	 */
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * A* search over box configurations
+	 *
+	 * @return the moves that solve the puzzle (or null if none was found within the limits)
+	 */
+	@Override
+	protected List<Direction> search() {
+		PriorityQueue<SearchNode> open       = new PriorityQueue<>(order);
+		ArrayList<SearchNode>     successors = new ArrayList<>();
+		SearchNode                first      = startNode();
+		table = new TranspositionTable(layout, tableBytes);
+		first.setEstimate(matching.load(first.getBoxes()));
+		if (first.getEstimate() == Layout.UNREACHABLE)
+			return null;
+		open.add(first);
+		table.put(first.getHash(), first.getBoxes(), first.getActor(), 0);
+		while (!open.isEmpty()) {
+			SearchNode node = open.poll();
+			int        seen = table.get(node.getHash(), node.getBoxes(), node.getActor());
+			if ((seen != TranspositionTable.NOT_FOUND) && (seen < node.getPushes())) // superseded by a cheaper route
+				continue;
+			if (isSolved(node))
+				return solution(node);
+			if (outOfTime())
+				return null;
+			expanded();
+			successors(node, successors);
+			if (!successors.isEmpty())
+				load(node);
+			for (SearchNode child : successors) {
+				seen = table.get(child.getHash(), child.getBoxes(), child.getActor());
+				if ((seen != TranspositionTable.NOT_FOUND) && (seen <= child.getPushes()))
+					continue;
+				int estimate = matching.push(child.getBox(), pushedTo(child));
+				if (estimate == Layout.UNREACHABLE)
+					continue;
+				child.setEstimate(estimate);
+				child.setMatching(matching.pushedMatching());
+				table.put(child.getHash(), child.getBoxes(), child.getActor(), child.getPushes());
+				open.add(child);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Load a node being expanded into the heuristic, from its saved matching if it has one
+	 *
+	 * @param node the node
+	 */
+	private void load(SearchNode node) {
+		if (node.getMatching() == null)
+			matching.load(node.getBoxes());
+		else
+			matching.load(node.getBoxes(), node.getMatching());
+		node.setMatching(null); // an expanded node is only kept as a parent
+	}
+
+	private final MatchingHeuristic matching   = new MatchingHeuristic(layout);
+	private TranspositionTable      table      = null;
+	private long                    tableBytes = Math.min(DEFAULT_TABLE_BYTES, Runtime.getRuntime().maxMemory()/4);
+	private int                     weight     = 1;
+
+	// lowest f = pushes+weight*estimate first, then the deepest (closest to a solution)
+	private final Comparator<SearchNode> order = new Comparator<SearchNode>() {
+		@Override
+		public int compare(SearchNode a, SearchNode b) {
+			int fa = a.getPushes()+weight*a.getEstimate();
+			int fb = b.getPushes()+weight*b.getEstimate();
+			if (fa != fb)
+				return Integer.compare(fa, fb);
+			return Integer.compare(b.getPushes(), a.getPushes());
+		}
+	};
+
+	private static final long DEFAULT_TABLE_BYTES = 256L << 20;
+}
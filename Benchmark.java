@@ -0,0 +1,367 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * A micro benchmark of one operation on the Sokoban model.  Each benchmark is warmed up
+ * and then timed over several fixed-length iterations, reporting the mean time per
+ * operation (with its standard error) and the bytes allocated per operation, measured
+ * from the thread's own allocation counter.  Results are fed into a sink so the JIT
+ * cannot remove the work being measured.
+ * <p>
+ * main runs the suite (canMove(), move(Direction), Box.isStuckSafe,
+ * Cell.isMoveableBoxLocation, onTarget(), snapshot(), restore(Snapshot) and construction)
+ * over every level in screens/,
+ * on both the Cell model and the BitBoard backend where the operation exists on both.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public abstract class Benchmark {
+	/**
+	 * Constructor
+	 *
+	 * @param name the name of the operation (cannot be null)
+	 * @param level the name of the level (cannot be null)
+	 * @param backend the name of the backend being measured (cannot be null)
+	 */
+	protected Benchmark(String name, String level, String backend) {
+		if ((name == null) || (level == null) || (backend == null))
+			throw new IllegalArgumentException("names cannot be null");
+		this.name    = name;
+		this.level   = level;
+		this.backend = backend;
+	}
+
+	/**
+	 * Performs the operation once
+	 *
+	 * @return a value depending on the result, consumed so the work cannot be optimized away
+	 */
+	protected abstract long operation();
+
+	/**
+	 * Warms up and then measures the operation
+	 *
+	 * @param warmups the number of untimed warm up iterations
+	 * @param iterations the number of timed iterations (must be positive)
+	 * @param millis the length of each iteration in milliseconds (must be positive)
+	 */
+	public void measure(int warmups, int iterations, long millis) {
+		if ((warmups < 0) || (iterations <= 0) || (millis <= 0))
+			throw new IllegalArgumentException("invalid iterations "+warmups+"/"+iterations+"/"+millis);
+		for (int i=0; i<warmups; i++)
+			iteration(millis);
+		double[] times = new double[iterations];
+		double   bytes = 0;
+		long     total = 0;
+		for (int i=0; i<iterations; i++) {
+			long before = allocatedBytes();
+			long ops    = iteration(millis);
+			long after  = allocatedBytes();
+			times[i] = lastNanos/(double) ops;
+			bytes   += after-before;
+			total   += ops;
+		}
+		double mean = 0;
+		for (double t : times)
+			mean += t;
+		mean /= iterations;
+		double var = 0;
+		for (double t : times)
+			var += (t-mean)*(t-mean);
+		nanosPerOp  = mean;
+		error       = (iterations > 1) ? Math.sqrt(var/(iterations-1)/iterations) : 0;
+		bytesPerOp  = (allocatedBytes() < 0) ? -1 : bytes/total;
+		measuredOps = total;
+	}
+
+	/**
+	 * Gets the mean time per operation of the last measurement
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public double getNanosPerOp() {
+		return nanosPerOp;
+	}
+
+	/**
+	 * Gets the standard error of the time per operation of the last measurement
+	 *
+	 * @return the standard error in nanoseconds
+	 */
+	public double getError() {
+		return error;
+	}
+
+	/**
+	 * Gets the bytes allocated per operation in the last measurement
+	 *
+	 * @return the bytes per operation (or -1 if the JVM cannot count allocations)
+	 */
+	public double getBytesPerOp() {
+		return bytesPerOp;
+	}
+
+	/**
+	 * A one line summary of the last measurement
+	 *
+	 * @return the summary
+	 */
+	public String report() {
+		return String.format("%-26s %-12s %-8s %12.1f +- %8.1f ns/op %10.1f B/op %12d ops",
+			name, level, backend, nanosPerOp, error, bytesPerOp, measuredOps);
+	}
+
+	/**
+	 * Runs the operation in batches until the time is up
+	 *
+	 * @param millis the length of the iteration in milliseconds
+	 * @return the number of operations run
+	 */
+	private long iteration(long millis) {
+		long ops   = 0;
+		long sum   = 0;
+		long start = System.nanoTime();
+		long end   = start+millis*1000000L;
+		long now;
+		do {
+			for (int i=0; i<BATCH; i++)
+				sum += operation();
+			ops += BATCH;
+			now  = System.nanoTime();
+		} while (now < end);
+		lastNanos = now-start;
+		sink     ^= sum;
+		return ops;
+	}
+
+	/**
+	 * The bytes allocated so far by the current thread
+	 *
+	 * @return the number of bytes (or -1 if the JVM cannot count them)
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Builds the benchmarks for one level
+	 *
+	 * @param level the name of the level
+	 * @param screen the screen file as a String
+	 * @return the benchmarks
+	 */
+	public static List<Benchmark> suite(String level, String screen) {
+		List<Benchmark> suite = new ArrayList<>();
+		for (boolean bits : new boolean[] {false, true}) {
+			String        backend = bits ? "bitboard" : "cell";
+			final Sokoban puzzle  = new Sokoban(screen, bits);
+			suite.add(new Benchmark("canMove()", level, backend) {
+				protected long operation() {
+					return puzzle.canMove().size();
+				}
+			});
+			suite.add(new Benchmark("onTarget()", level, backend) {
+				protected long operation() {
+					return puzzle.onTarget() ? 1 : 0;
+				}
+			});
+			suite.add(new Benchmark("Sokoban(String)", level, backend) {
+				protected long operation() {
+					return new Sokoban(screen, bits).numBoxes();
+				}
+			});
+			suite.add(new Benchmark("snapshot()", level, backend) {
+				protected long operation() {
+					return puzzle.snapshot().getActor();
+				}
+			});
+			final Direction[] walk = randomWalk(screen, bits);
+			if (walk.length > 0) {
+				// alternates between the start and the end of the random walk
+				final Sokoban    restorer = new Sokoban(screen, bits);
+				final Snapshot[] states   = new Snapshot[2];
+				states[0] = restorer.snapshot();
+				for (Direction dir : walk)
+					restorer.move(dir);
+				states[1] = restorer.snapshot();
+				suite.add(new Benchmark("restore(Snapshot)", level, backend) {
+					protected long operation() {
+						next ^= 1;
+						restorer.restore(states[next]);
+						return next;
+					}
+					private int next = 0;
+				});
+				// plays a fixed random walk forward, resetting (once per WALK moves) at the end
+				final Sokoban walker = new Sokoban(screen, bits);
+				suite.add(new Benchmark("move(Direction)", level, backend) {
+					protected long operation() {
+						if (step == walk.length) {
+							walker.reset();
+							step = 0;
+						}
+						walker.move(walk[step++]);
+						return step;
+					}
+					private int step = 0;
+				});
+			}
+		}
+		// the freeze checks belong to the Cell model: each candidate is a box with an empty,
+		// live square beyond it, the precondition of Box.isStuckSafe.  The position never
+		// changes, so the freeze cache is turned off or every query after the first would
+		// only time a cache lookup
+		final Sokoban         puzzle = new Sokoban(screen, false);
+		puzzle.setFreezeCaching(false);
+		final List<Cell>      boxes  = new ArrayList<>();
+		final List<Direction> dirs   = new ArrayList<>();
+		for (int row=0; row<puzzle.getNumRows(); row++) {
+			for (int col=0; col<puzzle.getNumCols(); col++) {
+				Cell cell = puzzle.getCell(row, col);
+				if (!cell.hasBox())
+					continue;
+				for (Direction dir : Direction.values()) {
+					Cell next = cell.getCell(dir);
+					if ((next != null) && next.isEmpty() && !next.isDeadSquare()) {
+						boxes.add(cell);
+						dirs.add(dir);
+					}
+				}
+			}
+		}
+		if (!boxes.isEmpty()) {
+			suite.add(new Benchmark("Box.isStuckSafe", level, "cell") {
+				protected long operation() {
+					if (++next == boxes.size())
+						next = 0;
+					return boxes.get(next).isStuckSafe(dirs.get(next)) ? 1 : 0;
+				}
+				private int next = 0;
+			});
+			suite.add(new Benchmark("Cell.isMoveableBoxLocation", level, "cell") {
+				protected long operation() {
+					if (++next == boxes.size())
+						next = 0;
+					Cell      origin = boxes.get(next);
+					Direction dir    = dirs.get(next);
+					return origin.getCell(dir).isMoveableBoxLocation(origin, dir.left()) ? 1 : 0;
+				}
+				private int next = 0;
+			});
+		}
+		return suite;
+	}
+
+	/**
+	 * A fixed (seeded) random walk of legal moves from the start of a level
+	 *
+	 * @param screen the screen file as a String
+	 * @param useBitBoard play on the BitBoard backend?
+	 * @return the moves (stopping early if the actor gets stuck)
+	 */
+	private static Direction[] randomWalk(String screen, boolean useBitBoard) {
+		Sokoban         puzzle = new Sokoban(screen, useBitBoard);
+		Random          random = new Random(SEED);
+		List<Direction> moves  = new ArrayList<>();
+		while (moves.size() < WALK) {
+			Vector<Direction> choices = puzzle.canMove();
+			if (choices.isEmpty())
+				break;
+			Direction dir = choices.get(random.nextInt(choices.size()));
+			puzzle.move(dir);
+			moves.add(dir);
+		}
+		return moves.toArray(new Direction[0]);
+	}
+
+	/**
+	 * The level files in a directory, in level number order
+	 *
+	 * @param dir the directory
+	 * @return the level files
+	 */
+	static List<File> levels(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null)
+			throw new SokobanException("cannot list "+dir);
+		List<File> levels = new ArrayList<>(Arrays.asList(files));
+		levels.sort(Comparator.comparingInt(Benchmark::levelNumber).thenComparing(File::getName));
+		return levels;
+	}
+
+	/**
+	 * The number at the end of a level file's name (screen.12 is level 12)
+	 *
+	 * @param file the level file
+	 * @return the level number (or Integer.MAX_VALUE if there is none)
+	 */
+	private static int levelNumber(File file) {
+		String name = file.getName();
+		try {
+			return Integer.parseInt(name.substring(name.lastIndexOf('.')+1));
+		} catch (NumberFormatException e) {
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Run the suite and print one line per benchmark
+	 *
+	 * @param args [-ms iteration length] [-warmup n] [-iterations n] [-only name] [level files...]
+	 */
+	public static void main(String[] args) {
+		long       millis     = 200;
+		int        warmups    = 3;
+		int        iterations = 5;
+		String     only       = null;
+		List<File> files      = new ArrayList<>();
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("-ms") && (i+1 < args.length))
+				millis = Long.parseLong(args[++i]);
+			else if (args[i].equals("-warmup") && (i+1 < args.length))
+				warmups = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-iterations") && (i+1 < args.length))
+				iterations = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-only") && (i+1 < args.length))
+				only = args[++i];
+			else if (args[i].startsWith("-")) {
+				System.out.println("usage: java Benchmark [-ms n] [-warmup n] [-iterations n] [-only name] [level files...]");
+				return;
+			} else
+				files.add(new File(args[i]));
+		}
+		if (files.isEmpty())
+			files = levels(new File("screens"));
+		for (File file : files) {
+			String screen = Sokoban.fileAsString(file);
+			for (Benchmark benchmark : suite(file.getName(), screen)) {
+				if ((only != null) && !benchmark.name.startsWith(only))
+					continue;
+				benchmark.measure(warmups, iterations, millis);
+				System.out.println(benchmark.report());
+			}
+		}
+		if (sink == 42)
+			System.out.println();
+	}
+
+	private final String name;
+	private final String level;
+	private final String backend;
+	private double       nanosPerOp  = 0;
+	private double       error       = 0;
+	private double       bytesPerOp  = 0;
+	private long         measuredOps = 0;
+	private long         lastNanos   = 0;
+
+	private static volatile long sink = 0; // consumes results so the JIT cannot drop the work
+
+	private static final int  BATCH = 256;  // operations between clock reads
+	private static final int  WALK  = 1024; // length of the random walk replayed by move(Direction)
+	private static final long SEED  = 1;
+}
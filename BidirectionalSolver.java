@@ -0,0 +1,249 @@
+import java.util.*;
+
+/**
+ * A push-optimal bidirectional solver for a Sokoban puzzle.  It searches forward from the
+ * start by pushes and backward from the solved positions by pulls, which undo pushes.
+ * Both searches use the normalized box configurations of the forward search, and they
+ * meet when one side reaches a state the other has already seen.  The two halves are
+ * then joined into one line of play.
+ * <p>
+ * Near a cramped goal area the backward search has few pulls to choose from while the
+ * forward search has many pushes, so growing whichever side has the smaller frontier
+ * keeps both searches small.  Each step expands a whole layer (one more push or pull),
+ * and the first layer to meet gives a solution with the fewest pushes possible.  A pull
+ * is only made if the model would allow the push it undoes, and not if it leaves a box
+ * where no box from the start could ever be pushed.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class BidirectionalSolver extends Solver {
+	/**
+	 * Construct a solver for the current position of a Sokoban puzzle
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 */
+	public BidirectionalSolver(Sokoban puzzle) {
+		super(puzzle);
+		pullWork    = start.copy();
+		pullScratch = start.copy();
+	}
+
+	/**
+	 * Construct a solver for a standard Sokoban screen file passed as a String
+	 *
+	 * @param screen the screen file as a String
+	 */
+	public BidirectionalSolver(String screen) {
+		super(screen);
+		pullWork    = start.copy();
+		pullScratch = start.copy();
+	}
+
+	/**
+	 * Macro pushes are not supported: each layer must be exactly one push or pull further
+	 *
+	 * @param on should macro pushes be used (must be false)?
+	 */
+	@Override
+	public void setMacros(boolean on) {
+		if (on)
+			throw new IllegalArgumentException("bidirectional search cannot use macro pushes");
+	}
+
+	/**
+	 * Gets the number of states seen by the backward search in the last solve
+	 *
+	 * @return the number of backward states
+	 */
+	public int getBackwardStates() {
+		return backwardStates;
+	}
+
+	/**
+	 * Gets the number of states seen by the forward search in the last solve
+	 *
+	 * @return the number of forward states
+	 */
+	public int getForwardStates() {
+		return forwardStates;
+	}
+
+	/**
+	 * Breadth-first search from both ends, a layer at a time
+	 *
+	 * @return the moves that solve the puzzle (or null if none was found within the limits)
+	 */
+	@Override
+	protected List<Direction> search() {
+		HashMap<SearchNode, SearchNode> forward       = new HashMap<>();
+		HashMap<SearchNode, SearchNode> backward      = new HashMap<>();
+		List<SearchNode>                forwardLayer  = new ArrayList<>();
+		List<SearchNode>                backwardLayer = new ArrayList<>();
+		ArrayList<SearchNode>           children      = new ArrayList<>();
+		SearchNode                      first         = startNode();
+		forwardStates  = 0;
+		backwardStates = 0;
+		if (isSolved(first))
+			return solution(first);
+		if (lowerBound(first.getBoxes()) == Layout.UNREACHABLE)
+			return null;
+		forward.put(first, first);
+		forwardLayer.add(first);
+		pushable = pushableSquares();
+		for (SearchNode goal : goals()) {
+			backward.put(goal, goal);
+			backwardLayer.add(goal);
+		}
+		while (!forwardLayer.isEmpty() && !backwardLayer.isEmpty()) {
+			boolean                         ahead = forwardLayer.size() <= backwardLayer.size();
+			HashMap<SearchNode, SearchNode> seen  = ahead ? forward : backward;
+			HashMap<SearchNode, SearchNode> other = ahead ? backward : forward;
+			List<SearchNode>                next  = new ArrayList<>();
+			SearchNode                      meet  = null;
+			for (SearchNode node : ahead ? forwardLayer : backwardLayer) {
+				if (outOfTime())
+					return null;
+				expanded();
+				if (ahead)
+					successors(node, children);
+				else
+					pulls(node, children);
+				for (SearchNode child : children) {
+					if (seen.containsKey(child))
+						continue;
+					seen.put(child, child);
+					next.add(child);
+					if ((meet == null) && other.containsKey(child))
+						meet = child;
+				}
+			}
+			forwardStates  = forward.size();
+			backwardStates = backward.size();
+			if (meet != null)
+				return ahead ? stitch(meet, backward.get(meet)) : stitch(forward.get(meet), meet);
+			if (ahead)
+				forwardLayer = next;
+			else
+				backwardLayer = next;
+		}
+		return null;
+	}
+
+	/**
+	 * The solved positions: every box on a target, with the actor in each region it could be left in
+	 *
+	 * @return the goal nodes
+	 */
+	private List<SearchNode> goals() {
+		long[]           boxes    = layout.targets().clone();
+		long[]           interior = new long[boxes.length];
+		long[]           covered  = new long[boxes.length];
+		List<SearchNode> goals    = new ArrayList<>();
+		// the squares the actor could ever stand on, whatever the boxes
+		pullWork.load(new long[boxes.length], start.getActor());
+		pullWork.normalizedActor();
+		System.arraycopy(pullWork.reachable(), 0, interior, 0, interior.length);
+		for (int idx=0; idx<layout.numSquares(); idx++) {
+			if (!Layout.test(interior, idx) || Layout.test(boxes, idx) || Layout.test(covered, idx))
+				continue;
+			pullWork.load(boxes, idx);
+			pullWork.normalizedActor();
+			long[] region = pullWork.reachable();
+			for (int i=0; i<covered.length; i++)
+				covered[i] |= region[i];
+			goals.add(rootNode(boxes, idx));
+		}
+		return goals;
+	}
+
+	/**
+	 * Generate the predecessors of a node: one for every pull from the region the actor
+	 * can reach.  Each is recorded as the push that leads back to the node.
+	 *
+	 * @param node the node to expand backwards
+	 * @param pulls the list to fill (cleared first)
+	 */
+	private void pulls(SearchNode node, List<SearchNode> pulls) {
+		pulls.clear();
+		long[] boxes = node.getBoxes();
+		pullWork.load(boxes, node.getActor(), node.getHash() ^ layout.actorKey(node.getActor()));
+		pullWork.normalizedActor();
+		long[] reach = pullWork.reachable();
+		for (int i=0; i<boxes.length; i++) {
+			for (long word=boxes[i]; word != 0; word &= word-1) {
+				int box = (i << 6)+Long.numberOfTrailingZeros(word);
+				for (Direction dir : DIRECTIONS) {
+					// the actor stands on to, next to the box, and steps back to from, pulling the box onto to
+					int to   = layout.neighbour(box, dir.reverse());
+					int from = (to < 0) ? -1 : layout.neighbour(to, dir.reverse());
+					if ((from < 0) || !Layout.test(reach, to) || layout.isWall(from) || Layout.test(boxes, from) ||
+						!Layout.test(pushable, to))
+						continue;
+					long[] child = boxes.clone();
+					Layout.clear(child, box);
+					Layout.set(child, to);
+					long boxHash = node.getHash() ^ layout.actorKey(node.getActor()) ^ layout.boxKey(box) ^ layout.boxKey(to);
+					pullScratch.load(child, from, boxHash);
+					if (!pullScratch.canPush(to, dir)) // the push undone must be one the model allows
+						continue;
+					int actor = pullScratch.normalizedActor();
+					pulls.add(new SearchNode(child, actor, pullScratch.boxHash() ^ layout.actorKey(actor), node, to, dir,
+						node.getPushes()+1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Join a forward line of play to a backward one that ends in the same state
+	 *
+	 * @param forward the forward node
+	 * @param backward the backward node equal to it
+	 * @return the moves from the start to a solved position
+	 */
+	private List<Direction> stitch(SearchNode forward, SearchNode backward) {
+		SearchNode node = forward;
+		for (SearchNode step=backward; step.getParent() != null; step=step.getParent()) {
+			long[] child = node.getBoxes().clone();
+			Layout.clear(child, step.getBox());
+			Layout.set(child, layout.neighbour(step.getBox(), step.getDir()));
+			node = childNode(node, child, step.getBox(), step.getDir());
+		}
+		return solution(node);
+	}
+
+	/**
+	 * The squares a box from the start could ever be pushed to, ignoring the other boxes
+	 *
+	 * @return the squares as a bitset
+	 */
+	private long[] pushableSquares() {
+		int    size  = layout.numSquares();
+		long[] seen  = start.boxes().clone();
+		int[]  queue = new int[size];
+		int    head  = 0;
+		int    tail  = 0;
+		for (int idx=0; idx<size; idx++)
+			if (Layout.test(seen, idx))
+				queue[tail++] = idx;
+		while (head < tail) {
+			int box = queue[head++];
+			for (Direction dir : DIRECTIONS) {
+				int to   = layout.neighbour(box, dir);
+				int from = layout.neighbour(box, dir.reverse());
+				if ((to < 0) || (from < 0) || layout.isWall(to) || layout.isWall(from) || Layout.test(seen, to))
+					continue;
+				Layout.set(seen, to);
+				queue[tail++] = to;
+			}
+		}
+		return seen;
+	}
+
+	private final BitBoard pullWork;       // the node being expanded backwards
+	private final BitBoard pullScratch;    // the predecessor being built
+	private long[]         pushable       = null;
+	private int            forwardStates  = 0;
+	private int            backwardStates = 0;
+}
@@ -0,0 +1,513 @@
+import java.util.*;
+
+/**
+ * A compact Sokoban puzzle state: the boxes as a packed bitset and the actor as a square
+ * index, over a shared static Layout.  It follows exactly the same movement rules as the
+ * Cell/Occupant model but every check is a bit operation, so it is the state used by
+ * solvers and bulk replay.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class BitBoard {
+	/**
+	 * Construct a board from a standard Sokoban screen file passed as a String
+	 *
+	 * @param screen the screen file as a String
+	 */
+	public BitBoard(String screen) {
+		if (screen == null)
+			throw new IllegalArgumentException("screen cannot be null");
+		ArrayList<String> lines = Sokoban.screenLines(screen);
+		int numRows = lines.size();
+		int numCols = 0;
+		for (String line : lines)
+			if (line.length() > numCols)
+				numCols = line.length();
+		if (numRows == 0)
+			throw new SokobanException("screen is empty");
+		int    size    = numRows*numCols;
+		long[] walls   = new long[Layout.words(size)];
+		long[] targets = new long[Layout.words(size)];
+		boxes = new long[Layout.words(size)];
+		actor = -1;
+		for (int row=0; row<numRows; row++) {
+			String line = lines.get(row);
+			for (int col=0; col<numCols; col++) {
+				char display = (col < line.length()) ? line.charAt(col) : Sokoban.EMPTY;
+				int  idx     = row*numCols+col;
+				if (display == Sokoban.WALL)
+					Layout.set(walls, idx);
+				if (display == Sokoban.TARGET || display == Sokoban.TARGET_BOX || display == Sokoban.TARGET_ACTOR)
+					Layout.set(targets, idx);
+				if (display == Sokoban.BOX || display == Sokoban.TARGET_BOX)
+					Layout.set(boxes, idx);
+				if (display == Sokoban.ACTOR || display == Sokoban.TARGET_ACTOR) {
+					if (actor >= 0)
+						throw new SokobanException("must be exactly one actor");
+					actor = idx;
+				}
+			}
+		}
+		if (actor < 0)
+			throw new SokobanException("must be exactly one actor");
+		layout      = new Layout(numRows, numCols, walls, targets);
+		visited     = new long[boxes.length];
+		numBoxes    = Layout.count(boxes);
+		numOnTarget = layout.countBoth(boxes, layout.targets());
+		boxHash     = computeBoxHash();
+		assert numBoxes() == numTargets() : "number of boxes and targets must be equal";
+	}
+
+	/**
+	 * Construct a board from a layout and a state
+	 *
+	 * @param layout the static layout (cannot be null)
+	 * @param boxes the box bitset (copied)
+	 * @param actor the actor square
+	 */
+	BitBoard(Layout layout, long[] boxes, int actor) {
+		if (layout == null)
+			throw new IllegalArgumentException("layout cannot be null");
+		this.layout      = layout;
+		this.boxes       = boxes.clone();
+		this.actor       = actor;
+		this.visited     = new long[boxes.length];
+		this.numBoxes    = Layout.count(this.boxes);
+		this.numOnTarget = layout.countBoth(this.boxes, layout.targets());
+		this.boxHash     = computeBoxHash();
+	}
+
+	/**
+	 * Load a new state into this board (so searches can reuse one board for many states)
+	 *
+	 * @param boxes the box bitset (copied)
+	 * @param actor the actor square
+	 */
+	void load(long[] boxes, int actor) {
+		System.arraycopy(boxes, 0, this.boxes, 0, this.boxes.length);
+		this.actor       = actor;
+		this.numOnTarget = layout.countBoth(this.boxes, layout.targets());
+		this.boxHash     = computeBoxHash();
+	}
+
+	/**
+	 * Load a new state into this board whose box hash is already known
+	 *
+	 * @param boxes the box bitset (copied)
+	 * @param actor the actor square
+	 * @param boxHash the Zobrist hash of the boxes
+	 */
+	void load(long[] boxes, int actor, long boxHash) {
+		System.arraycopy(boxes, 0, this.boxes, 0, this.boxes.length);
+		this.actor       = actor;
+		this.numOnTarget = layout.countBoth(this.boxes, layout.targets());
+		this.boxHash     = boxHash;
+	}
+
+	/**
+	 * A snapshot of the current state
+	 *
+	 * @return the snapshot
+	 */
+	public Snapshot snapshot() {
+		return Snapshot.fromBits(layout, actor, boxes);
+	}
+
+	/**
+	 * Restore a state from a snapshot
+	 *
+	 * @param snapshot the snapshot (cannot be null, and must come from an equal layout)
+	 */
+	public void restore(Snapshot snapshot) {
+		if (snapshot == null)
+			throw new IllegalArgumentException("snapshot cannot be null");
+		if (!layout.equals(snapshot.getLayout()))
+			throw new IllegalArgumentException("snapshot is from a different layout");
+		Arrays.fill(boxes, 0L);
+		for (int i=0; i<snapshot.numBoxes(); i++)
+			Layout.set(boxes, snapshot.getBox(i));
+		actor       = snapshot.getActor();
+		numOnTarget = layout.countBoth(boxes, layout.targets());
+		boxHash     = computeBoxHash();
+	}
+
+	/**
+	 * The box bitset (shared, so must not be changed)
+	 *
+	 * @return the box bitset
+	 */
+	long[] boxes() {
+		return boxes;
+	}
+
+	/**
+	 * A copy of this board, sharing the same layout
+	 *
+	 * @return the copy
+	 */
+	public BitBoard copy() {
+		return new BitBoard(layout, boxes, actor);
+	}
+
+	/**
+	 * Gets the static layout
+	 *
+	 * @return the layout
+	 */
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Gets the square occupied by the actor
+	 *
+	 * @return the actor square index
+	 */
+	public int getActor() {
+		return actor;
+	}
+
+	/**
+	 * Checks if a square holds a box
+	 *
+	 * @param idx the square index (may be -1)
+	 * @return does the square hold a box?
+	 */
+	public boolean hasBox(int idx) {
+		return (idx >= 0) && Layout.test(boxes, idx);
+	}
+
+	/**
+	 * Count the number of targets
+	 *
+	 * @return the number of targets
+	 */
+	public int numTargets() {
+		return layout.numTargets();
+	}
+
+	/**
+	 * Count the number of boxes
+	 *
+	 * @return the number of boxes
+	 */
+	public int numBoxes() {
+		return numBoxes;
+	}
+
+	/**
+	 * Count the number of boxes on targets
+	 *
+	 * @return the number of boxes on targets
+	 */
+	public int numOnTarget() {
+		return numOnTarget;
+	}
+
+	/**
+	 * Are all the boxes on target?
+	 *
+	 * @return are all the boxes on target?
+	 */
+	public boolean onTarget() {
+		return numOnTarget() == numTargets();
+	}
+
+	/**
+	 * Checks if the actor can move to the next square in a given direction
+	 *
+	 * @param dir the direction to check
+	 * @return can the actor move to the next square in a given direction?
+	 */
+	public boolean canMove(Direction dir) {
+		int next = layout.neighbour(actor, dir);
+		if (layout.isWall(next))
+			return false;
+		return !hasBox(next) || canPush(next, dir);
+	}
+
+	/**
+	 * Checks if the box on a square can be pushed in a given direction
+	 * (the same rules as Box.canMove: never onto a dead square)
+	 *
+	 * @param box the square holding the box
+	 * @param dir the direction to push
+	 * @return can the box be pushed?
+	 */
+	public boolean canPush(int box, Direction dir) {
+		int next = layout.neighbour(box, dir);
+		return !hasBox(next) && !layout.isDeadSquare(next) && isStuckSafe(box, dir);
+	}
+
+	/**
+	 * If it is safe, move the actor to the next square in a given direction
+	 *
+	 * @param dir the direction to move
+	 * @return was a box pushed?
+	 */
+	public boolean move(Direction dir) {
+		if (!canMove(dir))
+			throw new IllegalArgumentException("cannot move "+dir);
+		int next = layout.neighbour(actor, dir);
+		if (hasBox(next)) {
+			int ahead = layout.neighbour(next, dir);
+			Layout.clear(boxes, next);
+			Layout.set(boxes, ahead);
+			numOnTarget += (layout.isTarget(ahead) ? 1 : 0) - (layout.isTarget(next) ? 1 : 0);
+			boxHash     ^= layout.boxKey(next) ^ layout.boxKey(ahead);
+			actor = next;
+			return true;
+		}
+		actor = next;
+		return false;
+	}
+
+	/**
+	 * Reverse a move: step the actor back and, if the move was a push, pull the box back
+	 *
+	 * @param dir the direction of the move being reversed
+	 * @param pushed was a box pushed by the move?
+	 */
+	public void unmove(Direction dir, boolean pushed) {
+		int previous = layout.neighbour(actor, dir.reverse());
+		if (layout.isWall(previous) || hasBox(previous))
+			throw new IllegalArgumentException("cannot reverse "+dir);
+		if (pushed) {
+			int box = layout.neighbour(actor, dir);
+			if (!hasBox(box))
+				throw new IllegalArgumentException("no box to pull back");
+			Layout.clear(boxes, box);
+			Layout.set(boxes, actor);
+			numOnTarget += (layout.isTarget(actor) ? 1 : 0) - (layout.isTarget(box) ? 1 : 0);
+			boxHash     ^= layout.boxKey(box) ^ layout.boxKey(actor);
+		}
+		actor = previous;
+	}
+
+	/**
+	 * A 64-bit Zobrist hash of the position (the boxes and the actor's exact square)
+	 *
+	 * @return the position hash
+	 */
+	public long positionHash() {
+		return boxHash ^ layout.actorKey(actor);
+	}
+
+	/**
+	 * A 64-bit Zobrist hash of the position with the actor normalized to the region it can reach
+	 *
+	 * @return the normalized position hash
+	 */
+	public long normalizedHash() {
+		return boxHash ^ layout.actorKey(normalizedActor());
+	}
+
+	/**
+	 * A 64-bit Zobrist hash of the boxes alone
+	 *
+	 * @return the box hash
+	 */
+	public long boxHash() {
+		return boxHash;
+	}
+
+	/**
+	 * Finds the lowest numbered square the actor can reach without pushing a box,
+	 * leaving the whole reachable region in the reachable() bitset
+	 *
+	 * @return the lowest square index reachable by the actor
+	 */
+	public int normalizedActor() {
+		if (queue == null) {
+			queue     = new int[layout.numSquares()];
+			reachable = new long[boxes.length];
+		}
+		long[] walls      = layout.walls();
+		int[]  neighbours = layout.neighbours();
+		int    size       = layout.numSquares();
+		// start with the squares the actor cannot enter marked, then mark the region as it is found
+		for (int i=0; i<reachable.length; i++)
+			reachable[i] = walls[i] | boxes[i];
+		int min  = actor;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = actor;
+		Layout.set(reachable, actor);
+		while (head < tail) {
+			int idx = queue[head++];
+			if (idx < min)
+				min = idx;
+			for (int offset=0; offset<4*size; offset+=size) {
+				int next = neighbours[offset+idx];
+				if ((next >= 0) && !Layout.test(reachable, next)) {
+					Layout.set(reachable, next);
+					queue[tail++] = next;
+				}
+			}
+		}
+		for (int i=0; i<reachable.length; i++)
+			reachable[i] &= ~(walls[i] | boxes[i]);
+		return min;
+	}
+
+	/**
+	 * The region found by the last call to normalizedActor (shared, so must not be changed)
+	 *
+	 * @return the reachable squares as a bitset
+	 */
+	long[] reachable() {
+		return reachable;
+	}
+
+	/**
+	 * Gets the display character of a square
+	 *
+	 * @param idx the square index
+	 * @return the character to use for display purposes for the square
+	 */
+	public char getDisplay(int idx) {
+		boolean target = layout.isTarget(idx);
+		if (layout.isWall(idx))
+			return Sokoban.WALL;
+		else if (hasBox(idx))
+			return target ? Sokoban.TARGET_BOX : Sokoban.BOX;
+		else if (idx == actor)
+			return target ? Sokoban.TARGET_ACTOR : Sokoban.ACTOR;
+		else
+			return target ? Sokoban.TARGET : Sokoban.EMPTY;
+	}
+
+	/**
+	 * A String representation of the board, in the same format as Sokoban.toString
+	 *
+	 * @return the String representation
+	 */
+	@Override
+	public String toString() {
+		int           numCols = layout.getNumCols();
+		StringBuilder b       = new StringBuilder(layout.numSquares()+layout.getNumRows());
+		for (int idx=0; idx<layout.numSquares(); idx++) {
+			b.append(getDisplay(idx));
+			if (idx%numCols == numCols-1)
+				b.append('\n');
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Computes the Zobrist hash of the boxes from scratch
+	 *
+	 * @return the box hash
+	 */
+	private long computeBoxHash() {
+		long hash = 0L;
+		for (int i=0; i<boxes.length; i++)
+			for (long word=boxes[i]; word != 0; word &= word-1)
+				hash ^= layout.boxKey((i << 6)+Long.numberOfTrailingZeros(word));
+		return hash;
+	}
+
+	/**
+	 * Check if the box on a square is safe (from getting stuck to another box) if it moves
+	 * in the given direction (the same rules as Box.isStuckSafe)
+	 *
+	 * @param box the square holding the box
+	 * @param dir the direction to check
+	 * @return can the box move without getting stuck on another box?
+	 */
+	boolean isStuckSafe(int box, Direction dir) {
+		int next = layout.neighbour(box, dir);
+		if (layout.isTarget(next)) // okay to get stuck on a target
+			return true;
+		int nextAhead = layout.neighbour(next, dir);
+		int nextLeft  = layout.neighbour(next, dir.left());
+		int nextRight = layout.neighbour(next, dir.right());
+		boolean boxAhead = hasBox(nextAhead);
+		boolean boxLeft  = hasBox(nextLeft);
+		boolean boxRight = hasBox(nextRight);
+		// might get stuck if we move next to a box
+		if (!boxAhead && !boxLeft && !boxRight)
+			return true;
+		// ... but not if the box ahead can be moved, or we still can
+		if (boxAhead && (isMoveableBoxLocation(box, next, -1, dir) || isMoveableBoxLocation(box, nextAhead, next, dir)))
+			return true;
+		// ... but not if the box on the left can be moved, or we still can
+		if (boxLeft && (isMoveableBoxLocation(box, next, -1, dir.left()) || isMoveableBoxLocation(box, nextLeft, next, dir.left())))
+			return true;
+		// ... but not if the box on the right can be moved, or we still can
+		return boxRight && (isMoveableBoxLocation(box, next, -1, dir.right()) || isMoveableBoxLocation(box, nextRight, next, dir.right()));
+	}
+
+	/**
+	 * Could a box on a square move perpendicular to the indicated direction?
+	 * (the same rules as Cell.isMoveableBoxLocation)
+	 *
+	 * @param origin where the original box will move from (treated as empty)
+	 * @param square the square to check
+	 * @param taboo a square already assumed to have been visited (or -1 for none)
+	 * @param dir the direction to check
+	 * @return could a box on the square move perpendicular to the indicated direction?
+	 */
+	boolean isMoveableBoxLocation(int origin, int square, int taboo, Direction dir) {
+		if (cache == null)
+			cache = new FreezeCache();
+		long key    = FreezeCache.key(boxHash, origin, square, taboo, dir);
+		byte cached = cache.get(key);
+		if (cached != FreezeCache.UNKNOWN)
+			return cached == FreezeCache.MOVEABLE;
+		Arrays.fill(visited, 0L);
+		if (taboo >= 0)
+			Layout.set(visited, taboo);
+		boolean moveable = isMoveableBoxLocation(origin, square, dir);
+		cache.put(key, moveable);
+		return moveable;
+	}
+
+	/**
+	 * The recursive part of isMoveableBoxLocation, with the squares already checked in visited
+	 *
+	 * @param origin where the original box will move from (treated as empty)
+	 * @param square the square to check
+	 * @param dir the direction to check
+	 * @return could a box on the square move perpendicular to the indicated direction?
+	 */
+	private boolean isMoveableBoxLocation(int origin, int square, Direction dir) {
+		int left  = layout.neighbour(square, dir.left());
+		int right = layout.neighbour(square, dir.right());
+
+		//check for loops
+		if (Layout.test(visited, square))
+			return false;
+		Layout.set(visited, square);
+		boolean visitedLeft  = (left >= 0) && Layout.test(visited, left);
+		boolean visitedRight = (right >= 0) && Layout.test(visited, right);
+		boolean freeLeft     = !layout.isWall(left) && (!hasBox(left) || (left == origin));
+		boolean freeRight    = !layout.isWall(right) && (!hasBox(right) || (right == origin));
+
+		// could move left
+		if ((left >= 0) && !visitedLeft && ((freeLeft && !layout.isDeadSquare(left)) ||
+				(hasBox(left) && isMoveableBoxLocation(origin, left, dir.left()))) &&
+				(right >= 0) && !visitedRight && (freeRight ||
+						(hasBox(right) && isMoveableBoxLocation(origin, right, dir.right()))))
+			return true;
+		// could move right
+		else if ((right >= 0) && !visitedRight && ((freeRight && !layout.isDeadSquare(right)) ||
+				(hasBox(right) && isMoveableBoxLocation(origin, right, dir.right()))) &&
+				(left >= 0) && !visitedLeft && (freeLeft ||
+						(hasBox(left) && isMoveableBoxLocation(origin, left, dir.left()))))
+			return true;
+		return false;
+	}
+
+	private final Layout layout;
+	private final long[] boxes;
+	private int          actor;
+	private final int    numBoxes;
+	private int          numOnTarget;
+	private long         boxHash;
+	private final long[] visited;           // scratch for isMoveableBoxLocation
+	private FreezeCache  cache     = null;  // results of isMoveableBoxLocation
+	private int[]        queue     = null;  // scratch for normalizedActor
+	private long[]       reachable = null;  // scratch for normalizedActor
+}
@@ -0,0 +1,231 @@
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+
+/**
+ * A graphical representation of a whole Sokoban board. The board is one double-buffered component that paints every
+ * square straight from the model, so a level needs no per-cell components however large it is. When squares change
+ * only their rectangles are repainted, and painting only draws the squares inside the area being repainted
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class BoardPanel extends JPanel implements KeyListener, MouseListener
+{
+    /**
+     * Constructor for objects of class BoardPanel
+     *
+     * @param sokobanGUI the GUI the board belongs to
+     * @param sokoban the game to draw
+     */
+    public BoardPanel(SokobanGUI sokobanGUI, Sokoban sokoban) {
+        if (sokobanGUI == null)
+            throw new SokobanException("gui cannot be null");
+        if (sokoban == null)
+            throw new SokobanException("game cannot be null");
+
+        gui = sokobanGUI;
+        game = sokoban;
+        numRows = game.getNumRows();
+        numCols = game.getNumCols();
+
+        //big levels get smaller squares so the whole board still fits on the screen
+        int square = SQUARE;
+        if (!GraphicsEnvironment.isHeadless()) {
+            Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+            int fit = Math.min((screen.width-SCREEN_MARGIN)/numCols, (screen.height-SCREEN_MARGIN)/numRows);
+            square = Math.max(MIN_SQUARE, Math.min(SQUARE, fit));
+        }
+        setPreferredSize(new Dimension(numCols*square, numRows*square));
+
+        setDoubleBuffered(true);
+        setOpaque(true);
+        setBackground(Color.black);
+        setFocusable(true);
+        addMouseListener(this);
+        addKeyListener(this);
+    }
+
+    /**
+     * Repaints a single square, called when the model reports that it changed. Swing merges the requests made while
+     * handling one change into a single paint
+     *
+     * @param row the row of the square (starts from 0)
+     * @param col the column of the square (starts from 0)
+     */
+    public void repaintSquare(int row, int col) {
+        if ((row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
+            throw new SokobanException("invalid square: (" + row + "," + col + ")");
+        int square = squareSize();
+        repaint(originX()+col*square, originY()+row*square, square, square);
+    }
+
+    /**
+     * Paints the squares that lie inside the area being repainted
+     *
+     * @param g the graphics context
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int square = squareSize();
+        int x0 = originX();
+        int y0 = originY();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+        //only the rows and columns inside the clip need drawing
+        int firstRow = Math.max(0, (clip.y-y0)/square);
+        int lastRow = Math.min(numRows-1, (clip.y+clip.height-1-y0)/square);
+        int firstCol = Math.max(0, (clip.x-x0)/square);
+        int lastCol = Math.min(numCols-1, (clip.x+clip.width-1-x0)/square);
+
+        ImageIcon wall = TileCache.getIcon(Sokoban.WALL, square, square);
+        boolean wallLoaded = (wall.getImageLoadStatus() == MediaTracker.COMPLETE);
+        for (int row=firstRow; row<=lastRow; row++) {
+            for (int col=firstCol; col<=lastCol; col++) {
+                int x = x0+col*square;
+                int y = y0+row*square;
+                char display = game.getDisplay(row, col);
+                if ((display == Sokoban.WALL) && wallLoaded) {
+                    g.drawImage(wall.getImage(), x, y, this);
+                } else {
+                    g.setColor(colour(display));
+                    g.fillRect(x, y, square, square);
+                }
+                g.setColor(Color.black);
+                g.drawRect(x, y, square-1, square-1);
+            }
+        }
+    }
+
+    /**
+     * Walk the actor to the square clicked on, if it can get there without pushing a box
+     */
+    @Override
+    public void mouseClicked(MouseEvent event) {
+        int square = squareSize();
+        int col    = Math.floorDiv(event.getX()-originX(), square);
+        int row    = Math.floorDiv(event.getY()-originY(), square);
+        if ((row >= 0) && (row < numRows) && (col >= 0) && (col < numCols))
+            gui.walkTo(row, col);
+    }
+
+    //required methods from MouseListener
+    @Override
+    public void mousePressed(MouseEvent event) {}
+    @Override
+    public void mouseReleased(MouseEvent event) {}
+    @Override
+    public void mouseExited(MouseEvent event) {
+        gui.setStatus("");
+    }
+
+    /**
+     * Mouse has entered the board so make it the focus
+     */
+    @Override
+    public void mouseEntered(MouseEvent event) {
+        requestFocusInWindow();
+    }
+
+    //required methods from KeyListener
+    @Override
+    public void keyPressed(KeyEvent event) {}
+    @Override
+    public void keyReleased(KeyEvent event) {}
+
+    /**
+     * Gets the key pressed by the user and calls the required method
+     */
+    @Override
+    public void keyTyped(KeyEvent event) {
+        char command = Character.toUpperCase(event.getKeyChar());
+        if (command == W_CHAR) {
+            gui.setStatus("You Moved NORTH");
+            gui.move(Direction.NORTH);
+        } else if (command == A_CHAR) {
+            gui.setStatus("You Moved WEST");
+            gui.move(Direction.WEST);
+        } else if (command == S_CHAR) {
+            gui.setStatus("You Moved SOUTH");
+            gui.move(Direction.SOUTH);
+        } else if (command == D_CHAR) {
+            gui.setStatus("You Moved EAST");
+            gui.move(Direction.EAST);
+        } else {
+            gui.setStatus("Invalid Move");
+        }
+    }
+
+    /**
+     * The side of a square in pixels, the largest that lets the whole board fit the component
+     *
+     * @return the square size
+     */
+    private int squareSize() {
+        return Math.max(1, Math.min(getWidth()/numCols, getHeight()/numRows));
+    }
+
+    /**
+     * The x position of the left edge of the board, which is centred in the component
+     *
+     * @return the x position
+     */
+    private int originX() {
+        return (getWidth()-numCols*squareSize())/2;
+    }
+
+    /**
+     * The y position of the top edge of the board, which is centred in the component
+     *
+     * @return the y position
+     */
+    private int originY() {
+        return (getHeight()-numRows*squareSize())/2;
+    }
+
+    /**
+     * Gets the colour used to paint a square based on its display character
+     *
+     * @param display the display character
+     * @return the colour
+     */
+    private static Color colour(char display) {
+        switch (display) {
+            case Sokoban.BOX:          return BOX;
+            case Sokoban.ACTOR:        return ACTOR;
+            case Sokoban.TARGET:       return TARGET;
+            case Sokoban.TARGET_BOX:   return TARGET_BOX;
+            case Sokoban.TARGET_ACTOR: return TARGET_ACTOR;
+            case Sokoban.WALL:         return WALL; //only used if the wall image is missing
+            default:                   return EMPTY;
+        }
+    }
+
+    private SokobanGUI gui;
+    private Sokoban game;
+    private int numRows;
+    private int numCols;
+
+    //colours
+    private static final Color WALL = Color.gray;
+    private static final Color BOX = Color.orange;
+    private static final Color ACTOR = Color.blue;
+    private static final Color TARGET = Color.cyan;
+    private static final Color EMPTY = Color.white;
+    private static final Color TARGET_BOX = Color.green;
+    private static final Color TARGET_ACTOR = Color.magenta;
+
+    private static final char W_CHAR = 'W';
+    private static final char A_CHAR = 'A';
+    private static final char S_CHAR = 'S';
+    private static final char D_CHAR = 'D';
+
+    private static final int SQUARE = 50; //preferred square size in pixels
+    private static final int MIN_SQUARE = 8;
+    private static final int SCREEN_MARGIN = 200; //room left on the screen for the buttons, status and window frame
+
+    private static final long serialVersionUID = 1L;
+}
@@ -59,8 +59,8 @@ public class Box extends Occupant {
 			throw new SokobanException("next cannot be null");
 		if (!next.isEmpty())
 			throw new SokobanException("next must be empty");
-		if (!next.isWallSafe())
-			throw new SokobanException("next must be wall safe");
+		if (next.isDeadSquare())
+			throw new SokobanException("next cannot be a dead square");
 		if (next.isTarget()) // okay to get stuck on a target
 			return true;
 		Cell nextAhead = next.getCell(dir);
@@ -89,6 +89,6 @@ public class Box extends Occupant {
 	@Override
 	public boolean canMove(Direction dir) {
 		Cell next = cell.getCell(dir);
-		return (next != null) && next.isEmpty() && next.isWallSafe() && isStuckSafe(dir);
+		return (next != null) && next.isEmpty() && !next.isDeadSquare() && isStuckSafe(dir);
 	}
 }
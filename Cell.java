@@ -29,22 +29,22 @@ public class Cell implements Comparable<Cell> {
 		this.col    = col;
 		this.target = (display == Sokoban.TARGET || display == Sokoban.TARGET_BOX || display == Sokoban.TARGET_ACTOR) ? true : false;
 		this.occ    = (display == Sokoban.EMPTY || display == Sokoban.TARGET) ? null : Occupant.getInstance(display, this);
-		
+		count(1);
 	}
 
 	/**
 	 * Compares the cell with another only on the basis of rows and columns
 	 * 
 	 * @param other the other cell
-	 * @return -1 if either this row or column are smaller; 1 if either this row or column are larger; otherwise 0
+	 * @return -1 if this cell comes first in row-major order; 1 if it comes later; otherwise 0
 	 */
 	@Override
 	public int compareTo(Cell other) {
-		// consider row and col only
-		if ((row < other.row) || (col < other.col))
-			return -1;
-		else if ((row > other.row) || (col > other.col))
-			return 1;
+		// consider row and col only, row first, so the ordering is consistent
+		if (row != other.row)
+			return (row < other.row) ? -1 : 1;
+		else if (col != other.col)
+			return (col < other.col) ? -1 : 1;
 		else
 			return 0;
 	}
@@ -90,8 +90,10 @@ public class Cell implements Comparable<Cell> {
 	 * @param display the character to use for display purposes for this cell
 	 */
 	void setDisplay(char display) {
+		count(-1);
 		this.target = (display == Sokoban.TARGET || display == Sokoban.TARGET_BOX || display == Sokoban.TARGET_ACTOR) ? true : false;
 		this.occ    = (display == Sokoban.EMPTY || display == Sokoban.TARGET) ? null : Occupant.getInstance(display, this);
+		count(1);
 	}
 	
 	/**
@@ -110,9 +112,35 @@ public class Cell implements Comparable<Cell> {
 	 * @param occ the occupant for this cell
 	 */
 	void setOccupant(Occupant occ) {
+		count(-1);
 		this.occ = occ;
 		if (occ != null)
 			occ.setCell(this);
+		count(1);
+	}
+
+	/**
+	 * Adds (or removes) this cell's contribution to the puzzle's box, target, on-target and actor counts
+	 * 
+	 * @param sign 1 to add the contribution, -1 to remove it
+	 */
+	private void count(int sign) {
+		if (occ == null) {
+			if (target)
+				puzzle.adjustCounts(0, sign, 0, 0);
+			return;
+		}
+		boolean box = occ.isBox();
+		puzzle.adjustCounts(box ? sign : 0, target ? sign : 0, (box && target) ? sign : 0, occ.isActor() ? sign : 0);
+	}
+
+	/**
+	 * Gets the occupant of this cell
+	 * 
+	 * @return the occupant (or null if empty)
+	 */
+	Occupant getOccupant() {
+		return occ;
 	}
 
 	/**
@@ -220,6 +248,16 @@ public class Cell implements Comparable<Cell> {
 			return true;
 	}
 
+	/**
+	 * Is this a dead square: one from which a box could never be pushed to any target?
+	 * (Precomputed once per level, so much cheaper and stricter than isWallSafe)
+	 * 
+	 * @return is this a dead square?
+	 */
+	public boolean isDeadSquare() {
+		return puzzle.isDeadSquare(row, col);
+	}
+
 	/**
 	 * Is it safe (from getting stuck to another box) to move a box in the given direction?
 	 * 
@@ -243,8 +281,7 @@ public class Cell implements Comparable<Cell> {
 	public boolean isMoveableBoxLocation(Cell origin, Direction dir) {
 		if (origin == null)
 			throw new IllegalArgumentException("origin cannot be null");
-		TreeSet<Cell> visited = new TreeSet<Cell>();
-		return isMoveableBoxLocation(origin, dir, visited);
+		return isMoveableBoxLocation(origin, -1, dir);
 	}
 
 	/**
@@ -266,9 +303,36 @@ public class Cell implements Comparable<Cell> {
 			throw new IllegalArgumentException("taboo cannot be null");
 		if (taboo.equals(this))
 			throw new IllegalArgumentException("taboo cannot be this cell");
-		TreeSet<Cell> visited = new TreeSet<Cell>();
-		visited.add(taboo);
-		return isMoveableBoxLocation(origin, dir, visited);
+		return isMoveableBoxLocation(origin, taboo.index(), dir);
+	}
+
+	/**
+	 * Could a box at this location move perpendicular to the indicated direction?
+	 * The answer depends only on the walls and boxes, so it is cached against the hash of the boxes
+	 * (the same question is asked several times while a single move is checked and made).
+	 * 
+	 * @param origin where the original box will move from (cannot be null)
+	 * @param taboo the index of a cell that is already assumed to have been visited (or -1 for none)
+	 * @param dir the direction to check
+	 * @return if a box at this location could move perpendicular to the indicated direction?
+	 */
+	private boolean isMoveableBoxLocation(Cell origin, int taboo, Direction dir) {
+		FreezeCache cache = puzzle.freezeCache();
+		long        key   = 0L;
+		if (cache != null) {
+			key = FreezeCache.key(puzzle.boxHash(), origin.index(), index(), taboo, dir);
+			byte cached = cache.get(key);
+			if (cached != FreezeCache.UNKNOWN)
+				return cached == FreezeCache.MOVEABLE;
+		}
+		long[] visited = puzzle.freezeVisited();
+		Arrays.fill(visited, 0L);
+		if (taboo >= 0)
+			visit(visited, taboo);
+		boolean moveable = isMoveableBoxLocation(origin, dir, visited);
+		if (cache != null)
+			cache.put(key, moveable);
+		return moveable;
 	}
 
 	/**
@@ -280,32 +344,28 @@ public class Cell implements Comparable<Cell> {
 	 * 
 	 * @param origin where the original box will move from (cannot be null)
 	 * @param dir the direction to check
-	 * @param the set of cells already visited
+	 * @param visited the cells already visited, as a bitset indexed by row*numCols+col
 	 * @return if a box at this location could move perpendicular to the indicated direction?
 	 */
-	private boolean isMoveableBoxLocation(Cell origin, Direction dir, TreeSet<Cell> visited) {
-		if (origin == null)
-			throw new IllegalArgumentException("origin cannot be null");
-		if (visited == null)
-			throw new IllegalArgumentException("visited cannot be null");
+	private boolean isMoveableBoxLocation(Cell origin, Direction dir, long[] visited) {
 		Cell left  = getCell(dir.left());
 		Cell right = getCell(dir.right());
 
 		//check for loops
-		if (visited.contains(this))
+		if (visited(visited, this))
 			return false;
-		visited.add(this);
-		boolean visitedLeft  = visited.contains(left);
-		boolean visitedRight = visited.contains(right);
+		visit(visited, index());
+		boolean visitedLeft  = visited(visited, left);
+		boolean visitedRight = visited(visited, right);
 
 		// could move left
-		if ((left != null) && (!visitedLeft) && (((left.isEmpty() || left.hasActor() || left.equals(origin)) && left.isWallSafe()) ||
+		if ((left != null) && (!visitedLeft) && (((left.isEmpty() || left.hasActor() || left.equals(origin)) && !left.isDeadSquare()) ||
 				(left.hasBox() && left.isMoveableBoxLocation(origin, dir.left(), visited))) &&
 				(right != null) && (!visitedRight) && (right.isEmpty() || right.hasActor() || right.equals(origin) ||
 						(right.hasBox() && right.isMoveableBoxLocation(origin, dir.right(), visited))))
 			return true;
 		// could move right
-		else if ((right != null) && (!visitedRight) && (((right.isEmpty() || right.hasActor() || right.equals(origin)) && right.isWallSafe()) ||
+		else if ((right != null) && (!visitedRight) && (((right.isEmpty() || right.hasActor() || right.equals(origin)) && !right.isDeadSquare()) ||
 				(right.hasBox() && right.isMoveableBoxLocation(origin, dir.right(), visited))) &&
 				(left != null) && (!visitedLeft) && (left.isEmpty() || left.hasActor() || left.equals(origin) || 
 						(left.hasBox() && left.isMoveableBoxLocation(origin, dir.left(), visited))))
@@ -313,6 +373,39 @@ public class Cell implements Comparable<Cell> {
 		return false;
 	}
 
+	/**
+	 * Checks if a cell is marked in a visited bitset
+	 * 
+	 * @param visited the bitset
+	 * @param cell the cell (may be null)
+	 * @return is the cell marked?
+	 */
+	private static boolean visited(long[] visited, Cell cell) {
+		if (cell == null)
+			return false;
+		int idx = cell.index();
+		return (visited[idx >>> 6] & (1L << idx)) != 0;
+	}
+
+	/**
+	 * Marks a cell index in a visited bitset
+	 * 
+	 * @param visited the bitset
+	 * @param idx the cell index
+	 */
+	private static void visit(long[] visited, int idx) {
+		visited[idx >>> 6] |= (1L << idx);
+	}
+
+	/**
+	 * Gets this cell's index in the puzzle (row*numCols+col)
+	 * 
+	 * @return the cell index
+	 */
+	int index() {
+		return row*puzzle.getNumCols()+col;
+	}
+
 	/**
 	 * Checks if the cell occupant can move to the next cell in a given direction
 	 * 
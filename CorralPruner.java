@@ -0,0 +1,179 @@
+import java.util.*;
+
+/**
+ * PI-corral pruning for a solver: when a position has a corral that must be opened by a
+ * push into it, only the pushes into that corral need to be searched.
+ * <p>
+ * A corral is floor the actor cannot reach, with the boxes in it, fenced off by walls and
+ * by barrier boxes the actor can reach.  Until a barrier box is pushed nothing in the
+ * corral can move, and no box from outside can get in.  The corral is an I-corral when
+ * no barrier box can be pushed anywhere but into the corral until a barrier box has
+ * moved (every other push is blocked by a wall, a dead square, the corral or the barrier
+ * itself), and a P-corral when the actor can already make every push into it that the
+ * walls allow.  If such a corral holds a box off a target or an empty target, some push
+ * of a barrier box is in every solution, the first of them is into the corral, and it
+ * can be made first without making the solution any longer: the pushes before it only
+ * moved boxes it never touched.  So pruning every other push keeps a push-optimal
+ * solution, and a corral of this kind with no push into it is a deadlock.
+ * <p>
+ * Of the corrals that qualify, the one with the fewest pushes into it is used.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+class CorralPruner {
+	/**
+	 * Constructor
+	 *
+	 * @param layout the layout of the level (cannot be null)
+	 */
+	CorralPruner(Layout layout) {
+		if (layout == null)
+			throw new IllegalArgumentException("layout cannot be null");
+		int size    = layout.numSquares();
+		this.layout = layout;
+		stamp       = new int[size];
+		members     = new int[size];
+		barrier     = new int[size];
+		corral      = new long[Layout.words(size)];
+	}
+
+	/**
+	 * Find the corral whose pushes are the only ones that need to be searched
+	 *
+	 * @param board the position, with normalizedActor already called on it
+	 * @return the floor of the corral, pushes onto which are the ones to search (shared,
+	 *         so must not be changed), or null if every push must be searched
+	 */
+	long[] find(BitBoard board) {
+		long[] reach = board.reachable();
+		long[] boxes = board.boxes();
+		int    best  = Integer.MAX_VALUE;
+		if (mark > Integer.MAX_VALUE-2*layout.numSquares()) { // start the stamps again before they wrap
+			Arrays.fill(stamp, 0);
+			mark = 0;
+		}
+		int first = ++mark; // every square stamped since this search began belongs to some corral
+		for (int i=0; i<boxes.length; i++) {
+			for (long word=boxes[i]; word != 0; word &= word-1) {
+				int box = (i << 6)+Long.numberOfTrailingZeros(word);
+				if (!touchesReach(reach, box))
+					continue;
+				for (Direction dir : DIRECTIONS) {
+					int start = layout.neighbour(box, dir);
+					if (layout.isWall(start) || Layout.test(reach, start) || (stamp[start] >= first) ||
+						(Layout.test(boxes, start) && touchesReach(reach, start)))
+						continue;
+					int id     = ++mark;
+					int pushes = fill(board, start, id);
+					if ((pushes >= 0) && (pushes < best)) {
+						best = pushes;
+						Arrays.fill(corral, 0L);
+						for (int m=0; m<numMembers; m++)
+							if (!Layout.test(boxes, members[m]))
+								Layout.set(corral, members[m]);
+					}
+				}
+			}
+		}
+		return (best == Integer.MAX_VALUE) ? null : corral;
+	}
+
+	/**
+	 * Find the corral joined to a square and count the pushes into it, if it is one whose
+	 * pushes are the only ones to search
+	 *
+	 * @param board the position
+	 * @param start a square of the corral (floor out of reach, or a box out of reach)
+	 * @param id the stamp for the squares of this corral
+	 * @return the pushes into the corral, or -1 if it does not qualify
+	 */
+	private int fill(BitBoard board, int start, int id) {
+		long[]  reach     = board.reachable();
+		long[]  boxes     = board.boxes();
+		int     barrierId = id+1;
+		boolean needed    = false; // does a solution have to open the corral?
+		numMembers            = 0;
+		numBarrier            = 0;
+		stamp[start]          = id;
+		members[numMembers++] = start;
+		for (int m=0; m<numMembers; m++) {
+			int idx = members[m];
+			if (layout.isTarget(idx) != Layout.test(boxes, idx)) // an empty target or a box off a target
+				needed = true;
+			for (Direction dir : DIRECTIONS) {
+				int next = layout.neighbour(idx, dir);
+				if (layout.isWall(next) || (stamp[next] == id) || (stamp[next] == barrierId))
+					continue;
+				if (Layout.test(boxes, next) && touchesReach(reach, next)) {
+					stamp[next]           = barrierId;
+					barrier[numBarrier++] = next;
+				} else {
+					stamp[next]           = id;
+					members[numMembers++] = next;
+				}
+			}
+		}
+		mark = barrierId;
+		int pushes = 0;
+		for (int b=0; b<numBarrier; b++) {
+			int box = barrier[b];
+			if (!layout.isTarget(box))
+				needed = true;
+			for (Direction dir : DIRECTIONS) {
+				int to   = layout.neighbour(box, dir);
+				int from = layout.neighbour(box, dir.reverse());
+				if (layout.isWall(to) || layout.isWall(from) || isFixed(from, id) || (stamp[to] == barrierId))
+					continue;
+				if (stamp[to] == id) {
+					if (Layout.test(boxes, to))
+						continue;
+					if (!Layout.test(reach, from)) // not a P-corral: the push might be made possible later
+						return -1;
+					if (board.canPush(box, dir))
+						pushes++;
+				} else if (!layout.isDeadSquare(to))
+					return -1; // not an I-corral: the box might leave the barrier some other way
+			}
+		}
+		return needed ? pushes : -1;
+	}
+
+	/**
+	 * Is a square one the actor cannot stand on until a barrier box is pushed?
+	 *
+	 * @param idx the square
+	 * @param id the stamp of the corral (the barrier's stamp is one more)
+	 * @return is the square in the corral or the barrier?
+	 */
+	private boolean isFixed(int idx, int id) {
+		return (stamp[idx] == id) || (stamp[idx] == id+1);
+	}
+
+	/**
+	 * Is a square next to one the actor can reach?
+	 *
+	 * @param reach the squares the actor can reach
+	 * @param idx the square
+	 * @return is a neighbour reachable?
+	 */
+	private boolean touchesReach(long[] reach, int idx) {
+		for (Direction dir : DIRECTIONS) {
+			int next = layout.neighbour(idx, dir);
+			if ((next >= 0) && Layout.test(reach, next))
+				return true;
+		}
+		return false;
+	}
+
+	private final Layout layout;
+	private final int[]  stamp;          // the corral (or, one more, the barrier) each square was last found in
+	private final int[]  members;        // the squares of the corral being filled
+	private final int[]  barrier;        // the barrier boxes of the corral being filled
+	private final long[] corral;         // the floor of the best corral found
+	private int          numMembers = 0;
+	private int          numBarrier = 0;
+	private int          mark       = 0; // the last stamp used
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
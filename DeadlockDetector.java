@@ -0,0 +1,359 @@
+import java.util.*;
+
+/**
+ * Deadlock detection for a solver: positions that can never be solved, whatever is pushed
+ * next, found after a push so the search can drop them.  Every position dropped has no
+ * solution, so dropping them never costs a solver its solution or its optimality.
+ * <p>
+ * A box is stranded if, even with every other box taken off the board, it could never
+ * be pushed to a target from the side of it the actor is on.  Simple dead squares miss
+ * a box pushed, say, past the only square the actor could push it back from.  With no
+ * other boxes the actor can reach every square in its region of the floor around the
+ * box, so whether a box is stranded depends only on its square and on that region, and
+ * is worked out for every square and region when the level is loaded.
+ * <p>
+ * A freeze deadlock is a box that can never move again, off a target.  A box is blocked
+ * along an axis if a wall is next to it on that axis, if the squares on both sides are
+ * dead squares, or if a box next to it on that axis is itself frozen (the first box
+ * standing in for a wall while that is checked).  A box blocked along both axes is
+ * frozen, and so is every box that helped freeze it.
+ * <p>
+ * A corral is floor the actor cannot reach, fenced off by boxes.  When a push leaves a
+ * corral next to the box, the boxes around and in it are searched on their own, every
+ * other box taken off the board, pushing onto any square but a dead one: if no line of
+ * pushes gets the actor into the corral, or every one of those boxes onto a target (or,
+ * when the corral has an empty target, a box into the corral), the position is
+ * deadlocked.  The search gives up (and the position is kept) after
+ * CORRAL_LIMIT positions, and its answers are kept, by the boxes searched and the actor's
+ * region among them, since a line of play meets the same corral many times.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+class DeadlockDetector {
+	/**
+	 * Constructor
+	 *
+	 * @param layout the layout of the level (cannot be null)
+	 */
+	DeadlockDetector(Layout layout) {
+		if (layout == null)
+			throw new IllegalArgumentException("layout cannot be null");
+		int size    = layout.numSquares();
+		this.layout = layout;
+		checking    = new long[Layout.words(size)];
+		frozen      = new int[size];
+		region      = new byte[4*size];
+		live        = new long[Layout.words(4*size)];
+		board       = new BitBoard(layout, new long[Layout.words(size)], 0);
+		corral      = new long[Layout.words(size)];
+		outside     = new long[Layout.words(size)];
+		fenced      = new long[Layout.words(size)];
+		fence       = new int[size];
+		reach       = new long[Layout.words(size)];
+		reached     = new long[Layout.words(size)];
+		findRegions();
+		findLive();
+	}
+
+	/**
+	 * Is a position deadlocked by the box just pushed?
+	 *
+	 * @param boxes the boxes after the push
+	 * @param box the square the box was pushed to
+	 * @param dir the direction of the last push (the actor is on the square behind the box)
+	 * @return does the push strand the box, freeze a box off a target or close a corral for good?
+	 */
+	boolean isDeadlocked(long[] boxes, int box, Direction dir) {
+		return isDeadlocked(boxes, box, dir, null, -1);
+	}
+
+	/**
+	 * Is a position deadlocked by the box just pushed, when the actor's reach after the
+	 * push is already known?
+	 *
+	 * @param boxes the boxes after the push
+	 * @param box the square the box was pushed to
+	 * @param dir the direction of the last push (the actor is on the square behind the box)
+	 * @param reach the squares the actor can reach after the push (or null to find them)
+	 * @param normal the lowest numbered of those squares (ignored if reach is null)
+	 * @return does the push strand the box, freeze a box off a target or close a corral for good?
+	 */
+	boolean isDeadlocked(long[] boxes, int box, Direction dir, long[] reach, int normal) {
+		if (!layout.isTarget(box) && !Layout.test(live, 4*box+region[4*box+dir.reverse().ordinal()]))
+			return true;
+		numFrozen = 0;
+		if (isFrozen(boxes, box)) {
+			for (int i=0; i<numFrozen; i++)
+				if (!layout.isTarget(frozen[i]))
+					return true;
+		}
+		return isCorralDeadlocked(boxes, box, layout.neighbour(box, dir.reverse()), reach, normal);
+	}
+
+	/**
+	 * Is there a corral that can never be opened or filled?  A push only changes the
+	 * corrals next to the box's new square and next to its old one, where the actor now
+	 * stands, so only those are checked.
+	 *
+	 * @param boxes the boxes after the push
+	 * @param box the square the box was pushed to
+	 * @param actor the actor square
+	 * @param reach the squares the actor can reach (or null to find them)
+	 * @param normal the lowest numbered of those squares (ignored if reach is null)
+	 * @return is the position deadlocked by a corral?
+	 */
+	private boolean isCorralDeadlocked(long[] boxes, int box, int actor, long[] reach, int normal) {
+		long[] reached = reach;
+		if (reached == null) {
+			board.load(boxes, actor);
+			normal  = board.normalizedActor();
+			reached = this.reached;
+			System.arraycopy(board.reachable(), 0, reached, 0, reached.length); // the board is reused below
+		}
+		Arrays.fill(outside, 0L);
+		for (int seed=-1; seed<DIRECTIONS.length; seed++) {
+			int start = (seed < 0) ? box : layout.neighbour(actor, DIRECTIONS[seed]);
+			if (layout.isWall(start) || Layout.test(reached, start) || Layout.test(outside, start))
+				continue;
+			// the corral, and the boxes in it and around it, is everything out of reach joined to the square
+			Arrays.fill(fenced, 0L);
+			int top   = 0;
+			int floor = 0;
+			int goals = 0; // empty targets in the corral
+			fence[top++] = start;
+			Layout.set(outside, start);
+			Layout.set(fenced, start); // only boxes are out of reach next to the box or the actor
+			while (top > 0) {
+				int idx = fence[--top];
+				for (Direction dir : DIRECTIONS) {
+					int next = layout.neighbour(idx, dir);
+					if (layout.isWall(next) || Layout.test(reached, next) || Layout.test(outside, next))
+						continue;
+					Layout.set(outside, next);
+					if (Layout.test(boxes, next))
+						Layout.set(fenced, next);
+					else {
+						floor++;
+						if (layout.isTarget(next))
+							goals++;
+					}
+					fence[top++] = next;
+				}
+			}
+			if ((floor == 0) || ((goals == 0) && (layout.countBoth(fenced, layout.targets()) == Layout.count(fenced))))
+				continue;
+			// the fenced boxes alone leave the actor the same region wherever it is in this one
+			board.load(fenced, actor);
+			long    key    = board.boxHash() ^ layout.actorKey(normal);
+			Boolean opened = corrals.get(key);
+			if (opened == null) {
+				for (int i=0; i<corral.length; i++)
+					corral[i] = outside[i] & ~boxes[i];
+				opened = canOpen(fenced, actor, goals == 0);
+				if (corrals.size() >= CORRAL_CACHE)
+					corrals.clear();
+				corrals.put(key, opened);
+			}
+			if (!opened)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Search the boxes around a corral on their own: can they be pushed so the actor gets
+	 * into the corral, or so they are all on targets?  A corral with an empty target is
+	 * not done with until a box is pushed into it, so there the boxes all on targets do not
+	 * count, but a box pushed into the corral does.
+	 *
+	 * @param start the boxes around and in the corral
+	 * @param actor the actor square
+	 * @param fill would all the boxes on targets do (the corral has no empty target)?
+	 * @return can the corral be opened or filled (or did the search give up)?
+	 */
+	private boolean canOpen(long[] start, int actor, boolean fill) {
+		int           words = start.length;
+		int           goal  = Layout.count(start);
+		Set<Long>     seen  = new HashSet<>();
+		Deque<long[]> open  = new ArrayDeque<>();
+		long[]        first = Arrays.copyOf(start, words+1); // the boxes, then the actor square
+		first[words] = actor;
+		open.add(first);
+		board.load(start, actor);
+		seen.add(board.normalizedHash());
+		while (!open.isEmpty()) {
+			long[] state = open.poll();
+			board.load(state, (int) state[words]);
+			long hash = board.boxHash();
+			board.normalizedActor();
+			System.arraycopy(board.reachable(), 0, reach, 0, words); // hashing the children reuses the board
+			for (int i=0; i<words; i++)
+				if ((reach[i] & corral[i]) != 0)
+					return true;
+			for (int idx=0; idx<layout.numSquares(); idx++) {
+				if (!Layout.test(state, idx))
+					continue;
+				for (Direction dir : DIRECTIONS) {
+					int from = layout.neighbour(idx, dir.reverse());
+					int next = layout.neighbour(idx, dir);
+					if ((from < 0) || !Layout.test(reach, from) || layout.isWall(next) || Layout.test(state, next) ||
+						layout.isDeadSquare(next))
+						continue;
+					long[] child = state.clone();
+					Layout.clear(child, idx);
+					Layout.set(child, next);
+					if (fill ? (layout.countBoth(layout.targets(), child) == goal) : Layout.test(corral, next))
+						return true; // filled, or a box is in the corral that could go on to an empty target
+					board.load(child, idx, hash ^ layout.boxKey(idx) ^ layout.boxKey(next));
+					if (!seen.add(board.normalizedHash()))
+						continue;
+					if (seen.size() > CORRAL_LIMIT)
+						return true;
+					child[words] = idx;
+					open.add(child);
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Is a box frozen (blocked along both axes)?  Every box found frozen is added to frozen.
+	 *
+	 * @param boxes the boxes
+	 * @param box the square of the box
+	 * @return is the box frozen?
+	 */
+	private boolean isFrozen(long[] boxes, int box) {
+		Layout.set(checking, box); // stands in for a wall while its neighbours are checked
+		int     mark   = numFrozen;
+		boolean result = isBlocked(boxes, box, Direction.EAST) && isBlocked(boxes, box, Direction.NORTH);
+		Layout.clear(checking, box);
+		if (result)
+			frozen[numFrozen++] = box;
+		else
+			numFrozen = mark; // boxes frozen only by a box that can move were not frozen
+		return result;
+	}
+
+	/**
+	 * Is a box blocked along an axis?
+	 *
+	 * @param boxes the boxes
+	 * @param box the square of the box
+	 * @param dir either direction along the axis
+	 * @return can the box never be pushed along the axis?
+	 */
+	private boolean isBlocked(long[] boxes, int box, Direction dir) {
+		int one   = layout.neighbour(box, dir);
+		int other = layout.neighbour(box, dir.reverse());
+		if (layout.isWall(one) || layout.isWall(other) || Layout.test(checking, one) || Layout.test(checking, other))
+			return true;
+		if (layout.isDeadSquare(one) && layout.isDeadSquare(other))
+			return true;
+		return (Layout.test(boxes, one) && isFrozen(boxes, one)) || (Layout.test(boxes, other) && isFrozen(boxes, other));
+	}
+
+	/**
+	 * Label the regions of the floor around each square: with a box on the square, the
+	 * side the actor is on is labelled with the first side (in Direction order) it can walk
+	 * to, so two sides share a label exactly when they are in one region
+	 */
+	private void findRegions() {
+		int   size  = layout.numSquares();
+		int[] stamp = new int[size];
+		int[] queue = new int[size];
+		for (int box=0; box<size; box++) {
+			if (layout.isWall(box))
+				continue;
+			for (Direction side : DIRECTIONS)
+				region[4*box+side.ordinal()] = -1;
+			for (Direction side : DIRECTIONS) {
+				int start = layout.neighbour(box, side);
+				if (layout.isWall(start) || (region[4*box+side.ordinal()] >= 0))
+					continue;
+				// walk the floor from this side with the box in the way
+				int mark = 4*box+side.ordinal()+1;
+				int head = 0;
+				int tail = 0;
+				stamp[start]  = mark;
+				queue[tail++] = start;
+				while (head < tail) {
+					int idx = queue[head++];
+					for (Direction dir : DIRECTIONS) {
+						int next = layout.neighbour(idx, dir);
+						if ((next != box) && !layout.isWall(next) && (stamp[next] != mark)) {
+							stamp[next]   = mark;
+							queue[tail++] = next;
+						}
+					}
+				}
+				for (Direction other : DIRECTIONS) {
+					int square = layout.neighbour(box, other);
+					if (!layout.isWall(square) && (stamp[square] == mark))
+						region[4*box+other.ordinal()] = (byte) side.ordinal();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the live states of a lone box, a square and a region of the floor around it,
+	 * by pulling boxes back from the targets: a state is live if a push leads from it to a
+	 * live state, and a box on a target is live whichever region the actor is in
+	 */
+	private void findLive() {
+		int   size  = layout.numSquares();
+		int[] queue = new int[4*size];
+		int   head  = 0;
+		int   tail  = 0;
+		for (int t=0; t<layout.numTargets(); t++) {
+			int target = layout.targetSquare(t);
+			for (Direction side : DIRECTIONS) {
+				int state = 4*target+side.ordinal();
+				if (!layout.isWall(layout.neighbour(target, side)) && (region[state] == side.ordinal())) {
+					Layout.set(live, state);
+					queue[tail++] = state;
+				}
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int box   = state/4;
+			// the box was pushed onto this square from a side the actor can be on afterwards
+			for (Direction side : DIRECTIONS) {
+				if (region[4*box+side.ordinal()] != state%4)
+					continue;
+				int from   = layout.neighbour(box, side);    // where the box was, where the actor is now
+				int behind = layout.neighbour(from, side);   // where the actor pushed from
+				if (layout.isWall(behind))
+					continue;
+				int before = 4*from+region[4*from+side.ordinal()];
+				if (!Layout.test(live, before)) {
+					Layout.set(live, before);
+					queue[tail++] = before;
+				}
+			}
+		}
+	}
+
+	private final Layout   layout;
+	private final byte[]   region;   // the label of the region each side of each square is in (-1 for a wall)
+	private final long[]   live;     // the live states of a lone box, by square and region label
+	private final long[]   checking; // the boxes being checked, which count as walls
+	private final int[]    frozen;   // the boxes found frozen by the current check
+	private int            numFrozen = 0;
+	private final BitBoard board;    // for the actor's reach during a corral search
+	private final long[]   reach;    // the actor's reach in the corral search position being expanded
+	private final long[]   reached;  // the actor's reach in the position being checked
+	private final long[]   corral;   // the floor of the corrals being checked
+	private final long[]   outside;  // the squares out of the actor's reach found so far
+	private final long[]   fenced;   // the boxes around and in the corral being checked
+	private final int[]    fence;    // the squares still to visit while finding a corral
+	private final Map<Long, Boolean> corrals = new HashMap<>(); // can each corral searched be opened?
+
+	private static final Direction[] DIRECTIONS   = Direction.values();
+	private static final int         CORRAL_LIMIT = 1000;  // positions a corral search looks at before giving up
+	private static final int         CORRAL_CACHE = 65536; // corral answers kept before the cache is cleared
+}
@@ -0,0 +1,514 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A push-optimal breadth-first solver for a Sokoban puzzle that keeps its search on disk
+ * rather than in the heap, for levels whose state space is far larger than memory.  The
+ * search goes one layer (one number of pushes) at a time.  The states of a layer are
+ * expanded in order from a sorted file, and their successors are collected in a fixed
+ * buffer which, whenever it fills, is sorted and written out as a run.  The runs are then
+ * merged with the sorted file of every state visited so far, which drops the duplicates
+ * and writes both the next layer and the new visited file in one sequential pass.
+ * <p>
+ * No parent links are kept.  When a solution is found, the path back to the start is
+ * recovered by scanning each earlier layer for a state with a push to the next state on
+ * the path, so the layer files are kept until the search ends.  Files are written through
+ * a buffer and read back mapped into memory a window at a time (see StateWriter and
+ * StateReader), and are deleted as soon as they are finished with.  Some platforms cannot
+ * delete a file while a mapping of it is still alive, so a file that cannot be deleted
+ * is tried again when the search ends, and any still left are reported (see report).
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class ExternalBFSSolver extends Solver {
+	/**
+	 * Construct a solver for the current position of a Sokoban puzzle
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 */
+	public ExternalBFSSolver(Sokoban puzzle) {
+		super(puzzle);
+	}
+
+	/**
+	 * Construct a solver for a standard Sokoban screen file passed as a String
+	 *
+	 * @param screen the screen file as a String
+	 */
+	public ExternalBFSSolver(String screen) {
+		super(screen);
+	}
+
+	/**
+	 * Sets the directory the search files are kept in (a new directory is made in it for each solve)
+	 *
+	 * @param directory the directory (cannot be null)
+	 */
+	public void setDirectory(File directory) {
+		if (directory == null)
+			throw new IllegalArgumentException("directory cannot be null");
+		this.directory = directory;
+	}
+
+	/**
+	 * Sets the memory used to collect successors before they are sorted and written out
+	 *
+	 * @param bytes the buffer size in bytes
+	 */
+	public void setBufferBytes(long bytes) {
+		if (bytes <= 0)
+			throw new IllegalArgumentException("buffer size must be positive");
+		bufferBytes = bytes;
+	}
+
+	/**
+	 * Sets a limit on the disk used during solve; the search stops as if it had run out of time when it is passed
+	 *
+	 * @param bytes the disk limit in bytes (0 for no limit)
+	 */
+	public void setDiskLimit(long bytes) {
+		if (bytes < 0)
+			throw new IllegalArgumentException("disk limit cannot be negative");
+		diskLimit = bytes;
+	}
+
+	/**
+	 * Gets the most disk used at once during the last solve
+	 *
+	 * @return the peak disk use in bytes
+	 */
+	public long getPeakDisk() {
+		return peakDisk;
+	}
+
+	/**
+	 * Macro pushes are not supported: each layer must be exactly one push further from the start
+	 *
+	 * @param on should macro pushes be used (must be false)?
+	 */
+	@Override
+	public void setMacros(boolean on) {
+		if (on)
+			throw new IllegalArgumentException("breadth-first search cannot use macro pushes");
+	}
+
+	/**
+	 * A short report of the last solve, with the disk used
+	 *
+	 * @return the report
+	 */
+	@Override
+	public String report() {
+		String left = leftover.isEmpty() ? "" : ", "+leftover.size()+" search files left in "+leftover.get(0).getParent();
+		return super.report()+", peak disk "+(peakDisk >> 20)+" MB"+left;
+	}
+
+	/**
+	 * Breadth-first search over box configurations, layer by layer through files
+	 *
+	 * @return the moves that solve the puzzle (or null if none was found within the limits)
+	 */
+	@Override
+	protected List<Direction> search() {
+		SearchNode first = startNode();
+		peakDisk = 0;
+		runs     = 0;
+		leftover.clear();
+		if (lowerBound(first.getBoxes()) == Layout.UNREACHABLE)
+			return null;
+		if (isSolved(first))
+			return solution(first);
+		stride = first.getBoxes().length+1;
+		buffer = new long[(int) Math.max(1, Math.min(bufferBytes/8, Integer.MAX_VALUE-8)/stride)*stride];
+		pivot  = new long[stride];
+		File dir;
+		try {
+			dir = Files.createTempDirectory(directory.toPath(), "sokoban-bfs").toFile();
+		} catch (IOException e) {
+			throw new SokobanException("cannot create a directory in "+directory+": "+e);
+		}
+		try {
+			return layers(dir, first);
+		} finally {
+			buffer = null;
+			cleanUp(dir);
+		}
+	}
+
+	/**
+	 * Search layer by layer until a solution is found, a layer is empty or a limit is reached
+	 *
+	 * @param dir the directory for the search files
+	 * @param first the start node
+	 * @return the moves that solve the puzzle (or null)
+	 */
+	private List<Direction> layers(File dir, SearchNode first) {
+		List<File> layers  = new ArrayList<>();
+		File       visited = new File(dir, "visited.0");
+		pack(first, buffer, 0);
+		for (File file : new File[] { new File(dir, "layer.0"), visited }) {
+			StateWriter writer = new StateWriter(file, stride);
+			writer.write(buffer, 0);
+			writer.close();
+		}
+		layers.add(new File(dir, "layer.0"));
+		for (int depth=0; ; depth++) {
+			List<File> runs = new ArrayList<>();
+			SearchNode goal = expand(layers.get(depth), dir, runs);
+			if (goal != null)
+				return trace(layers, goal);
+			if (limitReached())
+				return null;
+			while (runs.size() > FAN_IN) { // merge the runs in groups until one merge can take them all
+				List<File> merged = new ArrayList<>();
+				for (int i=0; i<runs.size(); i+=FAN_IN) {
+					List<File> group = runs.subList(i, Math.min(i+FAN_IN, runs.size()));
+					File       run   = newRun(dir);
+					merge(group, null, run, null);
+					delete(group);
+					merged.add(run);
+					checkDisk(dir);
+				}
+				runs = merged;
+			}
+			File layer = new File(dir, "layer."+(depth+1));
+			File next  = new File(dir, "visited."+(depth+1));
+			long size  = merge(runs, visited, layer, next);
+			checkDisk(dir);
+			delete(runs);
+			delete(Collections.singletonList(visited));
+			visited = next;
+			if (size == 0) // no new states: there is no solution
+				return null;
+			if (limitReached())
+				return null;
+			layers.add(layer);
+		}
+	}
+
+	/**
+	 * Expand every state of a layer, writing their successors as sorted runs
+	 *
+	 * @param layer the layer file
+	 * @param dir the directory for the runs
+	 * @param runs the list to add the run files to
+	 * @return a solved successor (or null if there is none)
+	 */
+	private SearchNode expand(File layer, File dir, List<File> runs) {
+		ArrayList<SearchNode> successors = new ArrayList<>();
+		StateReader           in         = new StateReader(layer, stride);
+		int                   filled     = 0;
+		try {
+			while (in.next()) {
+				if (outOfTime())
+					return null;
+				expanded();
+				successors(node(in.current()), successors);
+				for (SearchNode child : successors) {
+					if (lowerBound(child.getBoxes()) == Layout.UNREACHABLE)
+						continue;
+					if (isSolved(child))
+						return child;
+					if (filled == buffer.length) {
+						runs.add(spill(filled, dir));
+						filled = 0;
+					}
+					pack(child, buffer, filled);
+					filled += stride;
+				}
+			}
+		} finally {
+			in.close();
+		}
+		if (filled > 0)
+			runs.add(spill(filled, dir));
+		return null;
+	}
+
+	/**
+	 * Sort the buffer and write it, without duplicates, as a new run
+	 *
+	 * @param filled the longs in use in the buffer
+	 * @param dir the directory for the run
+	 * @return the run file
+	 */
+	private File spill(int filled, File dir) {
+		sort(0, filled/stride);
+		File        run    = newRun(dir);
+		StateWriter writer = new StateWriter(run, stride);
+		for (int at=0; at<filled; at+=stride)
+			if ((at == 0) || (StateReader.compare(buffer, at-stride, buffer, at, stride) != 0))
+				writer.write(buffer, at);
+		writer.close();
+		checkDisk(dir);
+		return run;
+	}
+
+	/**
+	 * Merge sorted files into one, without duplicates, leaving out the states already visited
+	 *
+	 * @param inputs the sorted files to merge
+	 * @param visited the sorted file of states already visited (or null)
+	 * @param out the file for the new states
+	 * @param union the file for the visited and new states together (or null)
+	 * @return the number of new states
+	 */
+	private long merge(List<File> inputs, File visited, File out, File union) {
+		PriorityQueue<StateReader> queue   = new PriorityQueue<>(Math.max(1, inputs.size()), order);
+		List<StateReader>          readers = new ArrayList<>();
+		StateReader                old     = (visited == null) ? null : new StateReader(visited, stride);
+		StateWriter                writer  = new StateWriter(out, stride);
+		StateWriter                all     = (union == null) ? null : new StateWriter(union, stride);
+		long[]                     last    = new long[stride];
+		boolean                    first   = true;
+		boolean                    more    = (old != null) && old.next();
+		try {
+			for (File input : inputs) {
+				StateReader reader = new StateReader(input, stride);
+				readers.add(reader);
+				if (reader.next())
+					queue.add(reader);
+			}
+			while (!queue.isEmpty()) {
+				StateReader reader = queue.poll();
+				if (first || (StateReader.compare(reader.current(), 0, last, 0, stride) != 0)) {
+					System.arraycopy(reader.current(), 0, last, 0, stride);
+					first = false;
+					for ( ; more && (StateReader.compare(old.current(), 0, last, 0, stride) < 0); more = old.next())
+						all.write(old.current(), 0);
+					if (!more || (StateReader.compare(old.current(), 0, last, 0, stride) != 0)) {
+						writer.write(last, 0);
+						if (all != null)
+							all.write(last, 0);
+					}
+				}
+				if (reader.next())
+					queue.add(reader);
+			}
+			for ( ; more; more = old.next())
+				all.write(old.current(), 0);
+		} finally {
+			for (StateReader reader : readers)
+				reader.close();
+			if (old != null)
+				old.close();
+			writer.close();
+			if (all != null)
+				all.close();
+		}
+		return writer.count();
+	}
+
+	/**
+	 * Recover the pushes from the start to a solved node, scanning the layers backwards
+	 *
+	 * @param layers the layer files, the last being the layer the goal was reached from
+	 * @param goal the solved node (whose parent is a state of the last layer)
+	 * @return the moves that solve the puzzle
+	 */
+	private List<Direction> trace(List<File> layers, SearchNode goal) {
+		LinkedList<SearchNode> steps  = new LinkedList<>(); // the push into each state of the path
+		SearchNode             target = goal.getParent();
+		steps.addFirst(goal);
+		for (int depth=layers.size()-2; depth>=0; depth--) {
+			SearchNode step = predecessor(layers.get(depth), target);
+			if (step == null)
+				throw new SokobanException("no predecessor in layer "+depth);
+			steps.addFirst(step);
+			target = step.getParent();
+		}
+		SearchNode node = startNode();
+		for (SearchNode step : steps) {
+			long[] child = node.getBoxes().clone();
+			Layout.clear(child, step.getBox());
+			Layout.set(child, layout.neighbour(step.getBox(), step.getDir()));
+			node = childNode(node, child, step.getBox(), step.getDir());
+		}
+		return solution(node);
+	}
+
+	/**
+	 * Find a state in a layer with a push to a target state
+	 *
+	 * @param layer the layer file
+	 * @param target the target state
+	 * @return the successor equal to the target, whose parent is the state found (or null)
+	 */
+	private SearchNode predecessor(File layer, SearchNode target) {
+		ArrayList<SearchNode> successors = new ArrayList<>();
+		StateReader           in         = new StateReader(layer, stride);
+		long[]                goal       = target.getBoxes();
+		try {
+			while (in.next()) {
+				long[] state = in.current();
+				int    moved = 0;
+				for (int w=0; w<goal.length; w++)
+					moved += Long.bitCount(state[w] ^ goal[w]);
+				if (moved != 2) // a push moves exactly one box
+					continue;
+				successors(node(state), successors);
+				for (SearchNode child : successors)
+					if (child.equals(target))
+						return child;
+			}
+		} finally {
+			in.close();
+		}
+		return null;
+	}
+
+	/**
+	 * Sort a range of the records in the buffer (a quicksort, finished by insertion sort)
+	 *
+	 * @param lo the first record
+	 * @param hi one past the last record
+	 */
+	private void sort(int lo, int hi) {
+		while (hi-lo > INSERTION_SORT) {
+			System.arraycopy(buffer, (lo+(hi-lo)/2)*stride, pivot, 0, stride);
+			int i = lo;
+			int j = hi-1;
+			while (i <= j) {
+				while (StateReader.compare(buffer, i*stride, pivot, 0, stride) < 0)
+					i++;
+				while (StateReader.compare(buffer, j*stride, pivot, 0, stride) > 0)
+					j--;
+				if (i <= j)
+					swap(i++, j--);
+			}
+			if (j-lo < hi-i) { // recurse into the smaller part, so the stack stays shallow
+				sort(lo, j+1);
+				lo = i;
+			} else {
+				sort(i, hi);
+				hi = j+1;
+			}
+		}
+		for (int i=lo+1; i<hi; i++) {
+			System.arraycopy(buffer, i*stride, pivot, 0, stride);
+			int j = i-1;
+			for ( ; (j >= lo) && (StateReader.compare(buffer, j*stride, pivot, 0, stride) > 0); j--)
+				System.arraycopy(buffer, j*stride, buffer, (j+1)*stride, stride);
+			System.arraycopy(pivot, 0, buffer, (j+1)*stride, stride);
+		}
+	}
+
+	/**
+	 * Swap two records in the buffer
+	 *
+	 * @param a the first record
+	 * @param b the second record
+	 */
+	private void swap(int a, int b) {
+		for (int i=0; i<stride; i++) {
+			long t = buffer[a*stride+i];
+			buffer[a*stride+i] = buffer[b*stride+i];
+			buffer[b*stride+i] = t;
+		}
+	}
+
+	/**
+	 * Write a node's state as a record: the box bitset, then the normalized actor square
+	 *
+	 * @param node the node
+	 * @param data the array to write to
+	 * @param offset the index to write at
+	 */
+	private void pack(SearchNode node, long[] data, int offset) {
+		System.arraycopy(node.getBoxes(), 0, data, offset, stride-1);
+		data[offset+stride-1] = node.getActor();
+	}
+
+	/**
+	 * Build a node with no parent from a record
+	 *
+	 * @param record the record
+	 * @return the node
+	 */
+	private SearchNode node(long[] record) {
+		return rootNode(Arrays.copyOf(record, stride-1), (int) record[stride-1]);
+	}
+
+	/**
+	 * A new run file
+	 *
+	 * @param dir the directory for the run
+	 * @return the file
+	 */
+	private File newRun(File dir) {
+		return new File(dir, "run."+(runs++));
+	}
+
+	/**
+	 * Record the disk in use, stopping the search if it is over the limit
+	 *
+	 * @param dir the directory of the search files
+	 */
+	private void checkDisk(File dir) {
+		long used = 0;
+		for (File file : dir.listFiles())
+			used += file.length();
+		peakDisk = Math.max(peakDisk, used);
+		if ((diskLimit > 0) && (used > diskLimit))
+			stopAtLimit();
+	}
+
+	/**
+	 * Delete files, keeping any that cannot be deleted yet to try again at the end
+	 *
+	 * @param files the files
+	 */
+	private void delete(List<File> files) {
+		for (File file : files)
+			if (!file.delete() && file.exists())
+				leftover.add(file);
+	}
+
+	/**
+	 * Delete the search files and their directory when the search ends, reporting any that
+	 * cannot be deleted (they are deleted when the JVM exits, if they can be by then)
+	 *
+	 * @param dir the directory of the search files
+	 */
+	private void cleanUp(File dir) {
+		leftover.clear();
+		delete(Arrays.asList(dir.listFiles()));
+		if (!leftover.isEmpty()) {
+			System.gc(); // mappings of closed files are only released when collected
+			List<File> again = new ArrayList<>(leftover);
+			leftover.clear();
+			delete(again);
+		}
+		if (!dir.delete() && dir.exists())
+			leftover.add(dir);
+		for (int i=leftover.size()-1; i>=0; i--) // deleted on exit in the reverse order, so the directory goes last
+			leftover.get(i).deleteOnExit();
+		if (!leftover.isEmpty())
+			System.err.println("cannot delete "+leftover.size()+" search files in "+dir);
+	}
+
+	private File   directory   = new File(System.getProperty("java.io.tmpdir"));
+	private long   bufferBytes = Math.min(DEFAULT_BUFFER_BYTES, Runtime.getRuntime().maxMemory()/4);
+	private long   diskLimit   = 0;
+	private long   peakDisk    = 0;
+	private int    runs        = 0;    // run files made so far, for naming them
+	private int    stride      = 0;    // longs in a record: the box bitset and the actor
+	private long[] buffer      = null; // successors waiting to be sorted
+	private long[] pivot       = null;
+
+	private final List<File> leftover = new ArrayList<>(); // search files that could not be deleted
+
+	// readers in the order of their current records
+	private final Comparator<StateReader> order = new Comparator<StateReader>() {
+		@Override
+		public int compare(StateReader a, StateReader b) {
+			return StateReader.compare(a.current(), 0, b.current(), 0, stride);
+		}
+	};
+
+	private static final long DEFAULT_BUFFER_BYTES = 64L << 20;
+	private static final int  FAN_IN               = 64; // the most files merged at once
+	private static final int  INSERTION_SORT       = 16; // ranges this small are insertion sorted
+}
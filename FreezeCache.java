@@ -0,0 +1,68 @@
+
+/**
+ * A small, fixed-size cache of freeze checks (isMoveableBoxLocation results).
+ * A check depends only on the walls, the boxes and the squares involved, so it is keyed
+ * by the Zobrist hash of the boxes together with the origin, square, taboo square and
+ * direction.  The table is direct mapped: a new result simply replaces whatever shared
+ * its slot, so lookups and stores never allocate.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class FreezeCache {
+	/**
+	 * Default constructor
+	 */
+	public FreezeCache() {
+		keys    = new long[SIZE];
+		results = new byte[SIZE];
+	}
+
+	/**
+	 * Builds the key for a freeze check
+	 *
+	 * @param boxHash the Zobrist hash of the boxes
+	 * @param origin where the original box will move from
+	 * @param square the square being checked
+	 * @param taboo the square assumed already visited (or -1 for none)
+	 * @param dir the direction being checked
+	 * @return the key
+	 */
+	public static long key(long boxHash, int origin, int square, int taboo, Direction dir) {
+		long z = ((((long) origin << 20) ^ ((long) square << 40) ^ (taboo+1)) << 2 | dir.ordinal())*0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 29))*0xBF58476D1CE4E5B9L;
+		return boxHash ^ z ^ (z >>> 32);
+	}
+
+	/**
+	 * Looks up a freeze check
+	 *
+	 * @param key the key
+	 * @return UNKNOWN, FROZEN or MOVEABLE
+	 */
+	public byte get(long key) {
+		int slot = (int) key & (SIZE-1);
+		return (keys[slot] == key) ? results[slot] : UNKNOWN;
+	}
+
+	/**
+	 * Stores a freeze check
+	 *
+	 * @param key the key
+	 * @param moveable could the box move?
+	 */
+	public void put(long key, boolean moveable) {
+		int slot = (int) key & (SIZE-1);
+		keys[slot]    = key;
+		results[slot] = moveable ? MOVEABLE : FROZEN;
+	}
+
+	private final long[] keys;
+	private final byte[] results;
+
+	public static final byte UNKNOWN  = 0;
+	public static final byte FROZEN   = 1;
+	public static final byte MOVEABLE = 2;
+
+	private static final int SIZE = 1024; // must be a power of two
+}
@@ -0,0 +1,89 @@
+import java.util.*;
+
+/**
+ * The solutions found for one level, kept so that a hint on a line of play that has
+ * already been solved is answered at once.  Each position a solution passes through just
+ * before a push is recorded with that push, keyed by the position's normalized Zobrist
+ * hash, so the hint is found wherever the actor stands in the region it can reach.  The
+ * rest of an optimal solution is optimal from every position on it, so every push
+ * recorded from an optimal solution is the first push of an optimal solution from its
+ * position.  Pushes from a solution that may not be optimal are marked as such, and give
+ * way to a push from an optimal one.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+class HintCache {
+	/**
+	 * Record a solution
+	 *
+	 * @param from the position the solution starts from (cannot be null)
+	 * @param solution the moves that solve the puzzle from there (cannot be null)
+	 * @param optimal does the solution have the fewest pushes possible?
+	 */
+	void record(BitBoard from, List<Direction> solution, boolean optimal) {
+		if ((from == null) || (solution == null))
+			throw new IllegalArgumentException("position and solution cannot be null");
+		BitBoard board  = from.copy();
+		Layout   layout = board.getLayout();
+		for (Direction dir : solution) {
+			int next = layout.neighbour(board.getActor(), dir);
+			if (board.hasBox(next)) {
+				long    hash  = board.normalizedHash();
+				Integer known = pushes.get(hash);
+				if (optimal || (known == null) || (known < 0))
+					pushes.put(hash, (optimal ? 1 : -1)*(next*DIRECTIONS.length+dir.ordinal()+1));
+			}
+			if (!board.canMove(dir))
+				throw new IllegalArgumentException("solution makes an illegal move");
+			board.move(dir);
+		}
+	}
+
+	/**
+	 * Is the next push known for a position?
+	 *
+	 * @param hash the position's normalized Zobrist hash
+	 * @return is the next push known?
+	 */
+	boolean contains(long hash) {
+		return pushes.containsKey(hash);
+	}
+
+	/**
+	 * The square of the box to push next from a position
+	 *
+	 * @param hash the position's normalized Zobrist hash
+	 * @return the box's square index (or -1 if the next push is not known)
+	 */
+	int box(long hash) {
+		Integer push = pushes.get(hash);
+		return (push == null) ? -1 : (Math.abs(push)-1)/DIRECTIONS.length;
+	}
+
+	/**
+	 * The direction to push the next box in from a position
+	 *
+	 * @param hash the position's normalized Zobrist hash
+	 * @return the direction (or null if the next push is not known)
+	 */
+	Direction direction(long hash) {
+		Integer push = pushes.get(hash);
+		return (push == null) ? null : DIRECTIONS[(Math.abs(push)-1)%DIRECTIONS.length];
+	}
+
+	/**
+	 * Is the next push known for a position from an optimal solution?
+	 *
+	 * @param hash the position's normalized Zobrist hash
+	 * @return is the push known the first of an optimal solution?
+	 */
+	boolean isOptimal(long hash) {
+		Integer push = pushes.get(hash);
+		return (push != null) && (push > 0);
+	}
+
+	private final Map<Long, Integer> pushes = new HashMap<>(); // box square*4+direction+1, by position, negated if not optimal
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
@@ -0,0 +1,199 @@
+import java.util.*;
+
+/**
+ * A push-optimal iterative deepening A* solver for a Sokoban puzzle, for when memory is
+ * short.  Each iteration is a depth-first search that gives up on a node once its pushes
+ * plus its heuristic estimate (see MatchingHeuristic) pass a threshold; the next iteration
+ * raises the threshold to the smallest value that was passed.  Only the current path and
+ * the siblings of its nodes are held, so memory grows with the depth of the solution
+ * rather than with the number of states seen.
+ * <p>
+ * A depth-first search meets the same state by many routes.  An optional small
+ * TranspositionTable remembers the pushes each state was reached with during the current
+ * iteration, and a state reached again with no fewer pushes is not searched twice.
+ * Without the table only states already on the current path are skipped.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class IDAStarSolver extends Solver {
+	/**
+	 * Construct a solver for the current position of a Sokoban puzzle
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 */
+	public IDAStarSolver(Sokoban puzzle) {
+		super(puzzle);
+	}
+
+	/**
+	 * Construct a solver for a standard Sokoban screen file passed as a String
+	 *
+	 * @param screen the screen file as a String
+	 */
+	public IDAStarSolver(String screen) {
+		super(screen);
+	}
+
+	/**
+	 * Sets the memory used by the transposition table
+	 *
+	 * @param bytes the table size in bytes (0 for no table)
+	 */
+	public void setTableBytes(long bytes) {
+		if (bytes < 0)
+			throw new IllegalArgumentException("table size cannot be negative");
+		tableBytes = bytes;
+	}
+
+	/**
+	 * Gets the transposition table used by the last solve
+	 *
+	 * @return the table (or null if there was none)
+	 */
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Gets the number of iterations (thresholds tried) in the last solve
+	 *
+	 * @return the number of iterations
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Iterative deepening over box configurations
+	 *
+	 * @return the moves that solve the puzzle (or null if none was found within the limits)
+	 */
+	@Override
+	protected List<Direction> search() {
+		SearchNode first = startNode();
+		goal       = null;
+		iterations = 0;
+		table      = (tableBytes > 0) ? new TranspositionTable(layout, tableBytes) : null;
+		first.setEstimate(matching.load(first.getBoxes()));
+		int threshold = first.getEstimate();
+		while (threshold != Layout.UNREACHABLE) {
+			iterations++;
+			if (table != null) {
+				table.newSearch();
+				table.put(first.getHash(), first.getBoxes(), first.getActor(), 0);
+			}
+			int next = deepen(first, threshold, 0);
+			if (goal != null)
+				return solution(goal);
+			if (limitReached())
+				return null;
+			threshold = next;
+		}
+		return null; // every line of play ran into a deadlock
+	}
+
+	/**
+	 * Search below a node, as far as the threshold allows
+	 *
+	 * @param node the node (with its estimate set)
+	 * @param threshold the most pushes plus estimate to search to
+	 * @param depth the depth of the node in this iteration
+	 * @return FOUND if a solution was found (in goal), otherwise the smallest pushes plus
+	 *         estimate beyond the threshold (Layout.UNREACHABLE if there was none)
+	 */
+	private int deepen(SearchNode node, int threshold, int depth) {
+		int f = node.getPushes()+node.getEstimate();
+		if (f > threshold)
+			return f;
+		if (isSolved(node)) {
+			goal = node;
+			return FOUND;
+		}
+		if (outOfTime())
+			return Layout.UNREACHABLE;
+		expanded();
+		// the heuristic holds one position at a time, so estimate every child before descending
+		List<SearchNode> children = level(depth);
+		successors(node, children);
+		if (!children.isEmpty()) {
+			if (node.getMatching() == null)
+				matching.load(node.getBoxes());
+			else
+				matching.load(node.getBoxes(), node.getMatching());
+		}
+		for (Iterator<SearchNode> it=children.iterator(); it.hasNext(); ) {
+			SearchNode child    = it.next();
+			int        estimate = matching.push(child.getBox(), pushedTo(child));
+			if ((estimate == Layout.UNREACHABLE) || ((table == null) && onPath(node, child)))
+				it.remove();
+			else {
+				child.setEstimate(estimate);
+				child.setMatching(matching.pushedMatching()); // so the child is not solved from scratch
+			}
+		}
+		Collections.sort(children, ORDER);
+		int min = Layout.UNREACHABLE;
+		for (SearchNode child : children) {
+			if (table != null) {
+				int seen = table.get(child.getHash(), child.getBoxes(), child.getActor());
+				if ((seen != TranspositionTable.NOT_FOUND) && (seen <= child.getPushes()))
+					continue;
+				table.put(child.getHash(), child.getBoxes(), child.getActor(), child.getPushes());
+			}
+			int result = deepen(child, threshold, depth+1);
+			if (result == FOUND)
+				return FOUND;
+			if (limitReached())
+				return Layout.UNREACHABLE;
+			min = Math.min(min, result);
+		}
+		children.clear();
+		return min;
+	}
+
+	/**
+	 * Is a state already on the path to a node?
+	 *
+	 * @param node the last node of the path
+	 * @param child the state to look for
+	 * @return is the state on the path?
+	 */
+	private static boolean onPath(SearchNode node, SearchNode child) {
+		for (SearchNode n=node; n != null; n=n.getParent())
+			if (n.equals(child))
+				return true;
+		return false;
+	}
+
+	/**
+	 * The list that holds the children of the node being searched at a depth, reused
+	 * from one node to the next
+	 *
+	 * @param depth the depth
+	 * @return the list
+	 */
+	private List<SearchNode> level(int depth) {
+		while (levels.size() <= depth)
+			levels.add(new ArrayList<SearchNode>());
+		return levels.get(depth);
+	}
+
+	private final MatchingHeuristic           matching   = new MatchingHeuristic(layout);
+	private final List<ArrayList<SearchNode>> levels     = new ArrayList<>();
+	private TranspositionTable                table      = null;
+	private long                              tableBytes = DEFAULT_TABLE_BYTES;
+	private SearchNode                        goal       = null;
+	private int                               iterations = 0;
+
+	private static final long DEFAULT_TABLE_BYTES = 8L << 20;
+	private static final int  FOUND               = -1;
+
+	// the lowest estimate first, so the last iteration reaches a solution sooner
+	private static final Comparator<SearchNode> ORDER = new Comparator<SearchNode>() {
+		@Override
+		public int compare(SearchNode a, SearchNode b) {
+			return Integer.compare(a.getPushes()+a.getEstimate(), b.getPushes()+b.getEstimate());
+		}
+	};
+}
@@ -0,0 +1,400 @@
+import java.util.*;
+
+/**
+ * The static layout of a Sokoban puzzle: its size, walls and targets.
+ * Squares are numbered row*numCols+col and the walls and targets are held as packed
+ * bitsets.  A layout never changes once built, so it is shared by every BitBoard
+ * (and every copy of a BitBoard) made from the same screen.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class Layout {
+	/**
+	 * Constructor
+	 *
+	 * @param numRows the number of rows (must be positive)
+	 * @param numCols the number of columns (must be positive)
+	 * @param walls the squares occupied by walls (cannot be null)
+	 * @param targets the target squares (cannot be null)
+	 */
+	public Layout(int numRows, int numCols, long[] walls, long[] targets) {
+		if ((numRows <= 0) || (numCols <= 0))
+			throw new IllegalArgumentException("invalid size "+numRows+"x"+numCols);
+		if (walls == null)
+			throw new IllegalArgumentException("walls cannot be null");
+		if (targets == null)
+			throw new IllegalArgumentException("targets cannot be null");
+		int size = numRows*numCols;
+		if ((walls.length != words(size)) || (targets.length != words(size)))
+			throw new IllegalArgumentException("bitsets do not match the layout size");
+		this.numRows    = numRows;
+		this.numCols    = numCols;
+		this.walls      = walls.clone();
+		this.targets    = targets.clone();
+		this.numTargets = count(this.targets);
+		// neighbours of every square, -1 where the neighbour would be off the grid
+		neighbours = new int[4*size];
+		for (int idx=0; idx<size; idx++) {
+			int row = idx/numCols;
+			int col = idx%numCols;
+			neighbours[Direction.NORTH.ordinal()*size+idx] = (row > 0)         ? idx-numCols : -1;
+			neighbours[Direction.SOUTH.ordinal()*size+idx] = (row < numRows-1) ? idx+numCols : -1;
+			neighbours[Direction.EAST.ordinal()*size+idx]  = (col < numCols-1) ? idx+1       : -1;
+			neighbours[Direction.WEST.ordinal()*size+idx]  = (col > 0)         ? idx-1       : -1;
+		}
+		// Zobrist keys depend only on the square index, so equal positions hash equally across layouts and runs
+		boxKeys   = new long[size];
+		actorKeys = new long[size];
+		for (int idx=0; idx<size; idx++) {
+			boxKeys[idx]   = zobristKey(2L*idx);
+			actorKeys[idx] = zobristKey(2L*idx+1);
+		}
+		pushDistances   = pullDistances(this.targets);
+		targetSquares   = new int[numTargets];
+		targetDistances = new int[numTargets*size];
+		long[] one      = new long[words(size)];
+		for (int idx=0, t=0; idx<size; idx++) {
+			if (isTarget(idx)) {
+				set(one, idx);
+				targetSquares[t] = idx;
+				System.arraycopy(pullDistances(one), 0, targetDistances, t*size, size);
+				clear(one, idx);
+				t++;
+			}
+		}
+		dead          = new long[words(size)];
+		for (int idx=0; idx<size; idx++)
+			if (pushDistances[idx] == UNREACHABLE)
+				set(dead, idx);
+	}
+
+	/**
+	 * Gets the number of rows
+	 *
+	 * @return the number of rows
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * Gets the number of columns
+	 *
+	 * @return the number of columns
+	 */
+	public int getNumCols() {
+		return numCols;
+	}
+
+	/**
+	 * Gets the number of squares (rows times columns)
+	 *
+	 * @return the number of squares
+	 */
+	public int numSquares() {
+		return numRows*numCols;
+	}
+
+	/**
+	 * Gets the square index of a row and column
+	 *
+	 * @param row row number (starts from 0)
+	 * @param col column number (starts from 0)
+	 * @return the square index
+	 */
+	public int index(int row, int col) {
+		if ((row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
+			throw new IllegalArgumentException("invalid square ("+row+","+col+")");
+		return row*numCols+col;
+	}
+
+	/**
+	 * Get the next square in a given direction
+	 *
+	 * @param idx the square index
+	 * @param dir the direction to look
+	 * @return the index of the next square (or -1 if off the grid)
+	 */
+	public int neighbour(int idx, Direction dir) {
+		return neighbours[dir.ordinal()*numRows*numCols+idx];
+	}
+
+	/**
+	 * Checks if a square holds a wall (squares off the grid count as walls)
+	 *
+	 * @param idx the square index (may be -1)
+	 * @return does the square hold a wall?
+	 */
+	public boolean isWall(int idx) {
+		return (idx < 0) || test(walls, idx);
+	}
+
+	/**
+	 * Checks if a square is a target
+	 *
+	 * @param idx the square index (may be -1)
+	 * @return is the square a target?
+	 */
+	public boolean isTarget(int idx) {
+		return (idx >= 0) && test(targets, idx);
+	}
+
+	/**
+	 * Checks if a square is dead: a box on it can never be pushed to any target, whatever
+	 * the other boxes do.  Found once per layout by pulling boxes back from every target.
+	 *
+	 * @param idx the square index (may be -1)
+	 * @return is the square dead?
+	 */
+	public boolean isDeadSquare(int idx) {
+		return (idx < 0) || test(dead, idx);
+	}
+
+	/**
+	 * Gets the Zobrist key for a box on a square
+	 *
+	 * @param idx the square index
+	 * @return the Zobrist key
+	 */
+	public long boxKey(int idx) {
+		return boxKeys[idx];
+	}
+
+	/**
+	 * Gets the Zobrist key for the actor on a square
+	 *
+	 * @param idx the square index
+	 * @return the Zobrist key
+	 */
+	public long actorKey(int idx) {
+		return actorKeys[idx];
+	}
+
+	/**
+	 * The fewest pushes that could take a box from a square to any target, ignoring
+	 * the other boxes and whether the actor can get behind the box
+	 *
+	 * @param idx the square index
+	 * @return the number of pushes (or UNREACHABLE if no target can ever be reached)
+	 */
+	public int pushDistance(int idx) {
+		return pushDistances[idx];
+	}
+
+	/**
+	 * The fewest pushes that could take a box from a square to one particular target,
+	 * ignoring the other boxes and whether the actor can get behind the box
+	 *
+	 * @param idx the square index
+	 * @param target the target number (from 0 to numTargets()-1, in square order)
+	 * @return the number of pushes (or UNREACHABLE if the target can never be reached)
+	 */
+	public int pushDistance(int idx, int target) {
+		return targetDistances[target*numRows*numCols+idx];
+	}
+
+	/**
+	 * Gets the square of a target
+	 *
+	 * @param target the target number (from 0 to numTargets()-1, in square order)
+	 * @return the square index
+	 */
+	public int targetSquare(int target) {
+		return targetSquares[target];
+	}
+
+	/**
+	 * Gets the number of targets
+	 *
+	 * @return the number of targets
+	 */
+	public int numTargets() {
+		return numTargets;
+	}
+
+	/**
+	 * Test for equality with another layout: the same size, walls and targets
+	 *
+	 * @param obj the other layout
+	 * @return do the two layouts have the same size, walls and targets?
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if ((obj == null) || !(obj instanceof Layout))
+			return false;
+		Layout other = (Layout) obj;
+		return (numRows == other.numRows) && (numCols == other.numCols) &&
+			Arrays.equals(walls, other.walls) && Arrays.equals(targets, other.targets);
+	}
+
+	/**
+	 * A hash code consistent with equals
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return 31*(31*numRows+numCols)+Arrays.hashCode(walls)*17+Arrays.hashCode(targets);
+	}
+
+	/**
+	 * Counts the bits set in both of two bitsets
+	 *
+	 * @param a the first bitset
+	 * @param b the second bitset
+	 * @return the number of bits set in both
+	 */
+	int countBoth(long[] a, long[] b) {
+		int num = 0;
+		for (int i=0; i<a.length; i++)
+			num += Long.bitCount(a[i] & b[i]);
+		return num;
+	}
+
+	/**
+	 * The target bitset (shared, so must not be changed)
+	 *
+	 * @return the target bitset
+	 */
+	long[] targets() {
+		return targets;
+	}
+
+	/**
+	 * The wall bitset (shared, so must not be changed)
+	 *
+	 * @return the wall bitset
+	 */
+	long[] walls() {
+		return walls;
+	}
+
+	/**
+	 * The neighbour table, indexed by dir.ordinal()*numSquares()+idx (shared, so must not be changed)
+	 *
+	 * @return the neighbour table
+	 */
+	int[] neighbours() {
+		return neighbours;
+	}
+
+	/**
+	 * Pull boxes back from some squares through the layout (breadth first), giving the
+	 * push distance from each square to the nearest of them
+	 *
+	 * @param sources the squares to pull from
+	 * @return the push distances
+	 */
+	private int[] pullDistances(long[] sources) {
+		int   size  = numRows*numCols;
+		int[] dist  = new int[size];
+		int[] queue = new int[size];
+		int   head  = 0;
+		int   tail  = 0;
+		Arrays.fill(dist, UNREACHABLE);
+		for (int idx=0; idx<size; idx++) {
+			if (test(sources, idx)) {
+				dist[idx]     = 0;
+				queue[tail++] = idx;
+			}
+		}
+		while (head < tail) {
+			int box = queue[head++];
+			for (Direction dir : Direction.values()) {
+				// the box was pushed here in direction dir from prev, by the actor standing on from
+				int prev = neighbour(box, dir.reverse());
+				int from = (prev < 0) ? -1 : neighbour(prev, dir.reverse());
+				if (isWall(prev) || isWall(from) || (dist[prev] != UNREACHABLE))
+					continue;
+				dist[prev]    = dist[box]+1;
+				queue[tail++] = prev;
+			}
+		}
+		return dist;
+	}
+
+	/**
+	 * A well mixed 64-bit key (the SplitMix64 generator's output for a given step)
+	 *
+	 * @param step the step number
+	 * @return the key
+	 */
+	private static long zobristKey(long step) {
+		long z = (step+1)*0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * The number of longs needed for a bitset of the given size
+	 *
+	 * @param size the number of bits
+	 * @return the number of longs
+	 */
+	static int words(int size) {
+		return (size+63) >>> 6;
+	}
+
+	/**
+	 * Checks a bit in a bitset
+	 *
+	 * @param bits the bitset
+	 * @param idx the bit index
+	 * @return is the bit set?
+	 */
+	static boolean test(long[] bits, int idx) {
+		return (bits[idx >>> 6] & (1L << idx)) != 0;
+	}
+
+	/**
+	 * Sets a bit in a bitset
+	 *
+	 * @param bits the bitset
+	 * @param idx the bit index
+	 */
+	static void set(long[] bits, int idx) {
+		bits[idx >>> 6] |= (1L << idx);
+	}
+
+	/**
+	 * Clears a bit in a bitset
+	 *
+	 * @param bits the bitset
+	 * @param idx the bit index
+	 */
+	static void clear(long[] bits, int idx) {
+		bits[idx >>> 6] &= ~(1L << idx);
+	}
+
+	/**
+	 * Counts the bits set in a bitset
+	 *
+	 * @param bits the bitset
+	 * @return the number of bits set
+	 */
+	static int count(long[] bits) {
+		int num = 0;
+		for (long word : bits)
+			num += Long.bitCount(word);
+		return num;
+	}
+
+	private final int    numRows;
+	private final int    numCols;
+	private final int    numTargets;
+	private final long[] walls;
+	private final long[] targets;
+	private final long[] dead;
+	private final int[]  neighbours;
+	private final long[] boxKeys;
+	private final long[] actorKeys;
+	private final int[]  pushDistances;
+	private final int[]  targetSquares;
+	private final int[]  targetDistances; // indexed by target*numSquares()+idx
+
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+}
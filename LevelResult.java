@@ -0,0 +1,183 @@
+
+/**
+ * The outcome of running a solver (or a player) on one level: whether it was solved, the
+ * size of the solution and what it cost to find.  A result can be written as a line of
+ * CSV or a JSON object, and read back from CSV so two runs can be compared.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class LevelResult {
+	/**
+	 * Constructor
+	 *
+	 * @param level the name of the level (cannot be null)
+	 * @param solver the name of the solver or player (cannot be null)
+	 * @param status how the run ended: solved, limit, unsolvable, stuck, out of memory or error (cannot be null)
+	 * @param pushes the number of pushes in the solution (0 if not solved)
+	 * @param moves the number of moves in the solution (0 if not solved)
+	 * @param nodes the number of nodes expanded (or moves tried, for a player)
+	 * @param millis the wall clock time taken in milliseconds
+	 * @param peakMemory the peak heap seen in bytes
+	 */
+	public LevelResult(String level, String solver, String status, int pushes, int moves, long nodes, long millis, long peakMemory) {
+		if ((level == null) || (solver == null) || (status == null))
+			throw new IllegalArgumentException("names cannot be null");
+		this.level      = level;
+		this.solver     = solver;
+		this.status     = status;
+		this.pushes     = pushes;
+		this.moves      = moves;
+		this.nodes      = nodes;
+		this.millis     = millis;
+		this.peakMemory = peakMemory;
+	}
+
+	/**
+	 * Gets the name of the level
+	 *
+	 * @return the level name
+	 */
+	public String getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the name of the solver or player
+	 *
+	 * @return the solver name
+	 */
+	public String getSolver() {
+		return solver;
+	}
+
+	/**
+	 * Gets how the run ended
+	 *
+	 * @return the status
+	 */
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * Was the level solved?
+	 *
+	 * @return was the level solved?
+	 */
+	public boolean isSolved() {
+		return status.equals(SOLVED);
+	}
+
+	/**
+	 * Gets the number of pushes in the solution
+	 *
+	 * @return the number of pushes
+	 */
+	public int getPushes() {
+		return pushes;
+	}
+
+	/**
+	 * Gets the number of moves in the solution
+	 *
+	 * @return the number of moves
+	 */
+	public int getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Gets the number of nodes expanded
+	 *
+	 * @return the number of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Gets the wall clock time taken
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * Gets the peak heap seen
+	 *
+	 * @return the peak heap in bytes
+	 */
+	public long getPeakMemory() {
+		return peakMemory;
+	}
+
+	/**
+	 * The result as a line of CSV (in the order of CSV_HEADER)
+	 *
+	 * @return the CSV line
+	 */
+	public String toCsv() {
+		return level+","+solver+","+status+","+isSolved()+","+pushes+","+moves+","+nodes+","+millis+","+peakMemory;
+	}
+
+	/**
+	 * The result as a JSON object
+	 *
+	 * @return the JSON object
+	 */
+	public String toJson() {
+		return "{\"level\":\""+level+"\",\"solver\":\""+solver+"\",\"status\":\""+status+"\",\"solved\":"+isSolved()+
+			",\"pushes\":"+pushes+",\"moves\":"+moves+",\"nodes\":"+nodes+",\"millis\":"+millis+",\"peakMemory\":"+peakMemory+"}";
+	}
+
+	/**
+	 * Read a result back from a line of CSV written by toCsv
+	 *
+	 * @param line the CSV line
+	 * @return the result
+	 */
+	public static LevelResult fromCsv(String line) {
+		if (line == null)
+			throw new IllegalArgumentException("line cannot be null");
+		String[] fields = line.trim().split(",");
+		if (fields.length != 9)
+			throw new IllegalArgumentException("not a result: "+line);
+		try {
+			return new LevelResult(fields[0], fields[1], fields[2], Integer.parseInt(fields[4]), Integer.parseInt(fields[5]),
+				Long.parseLong(fields[6]), Long.parseLong(fields[7]), Long.parseLong(fields[8]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("not a result: "+line);
+		}
+	}
+
+	/**
+	 * A String representation of the result
+	 *
+	 * @return the String representation
+	 */
+	@Override
+	public String toString() {
+		return toCsv();
+	}
+
+	private final String level;
+	private final String solver;
+	private final String status;
+	private final int    pushes;
+	private final int    moves;
+	private final long   nodes;
+	private final long   millis;
+	private final long   peakMemory;
+
+	public static final String SOLVED        = "solved";
+	public static final String LIMIT         = "limit";
+	public static final String UNSOLVABLE    = "unsolvable";
+	public static final String STUCK         = "stuck";
+	public static final String OUT_OF_MEMORY = "out of memory";
+	public static final String ERROR         = "error";
+
+	public static final String CSV_HEADER = "level,solver,status,solved,pushes,moves,nodes,millis,peakMemory";
+}
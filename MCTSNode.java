@@ -0,0 +1,125 @@
+import java.util.concurrent.atomic.*;
+
+/**
+ * A node in an MCTSPlayer's search tree: the move that led to it, the hash of the position
+ * it reaches and the visit and reward totals used to choose between moves.  The tree is
+ * shared by the search threads without locks: the totals are atomic and a node's
+ * children are published once, by compare-and-set, by whichever thread expands it first.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+class MCTSNode {
+	/**
+	 * Constructor
+	 *
+	 * @param parent the node this one is a child of (null for the root)
+	 * @param move the move from the parent (null for the root)
+	 * @param hash the position hash after the move
+	 */
+	MCTSNode(MCTSNode parent, Direction move, long hash) {
+		this.parent = parent;
+		this.move   = move;
+		this.hash   = hash;
+	}
+
+	/**
+	 * Gets the node this one is a child of
+	 *
+	 * @return the parent (null for the root)
+	 */
+	MCTSNode getParent() {
+		return parent;
+	}
+
+	/**
+	 * Makes this node a root, letting the rest of the old tree be collected
+	 */
+	void detach() {
+		parent = null;
+	}
+
+	/**
+	 * Gets the move from the parent
+	 *
+	 * @return the move (null for the root)
+	 */
+	Direction getMove() {
+		return move;
+	}
+
+	/**
+	 * Gets the position hash after the move
+	 *
+	 * @return the position hash
+	 */
+	long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Gets the children
+	 *
+	 * @return the children (null if not yet expanded)
+	 */
+	MCTSNode[] getChildren() {
+		return children.get();
+	}
+
+	/**
+	 * Publish the children, unless another thread already has
+	 *
+	 * @param kids the children
+	 * @return the children that were published (kids, or another thread's)
+	 */
+	MCTSNode[] expand(MCTSNode[] kids) {
+		if (children.compareAndSet(null, kids))
+			return kids;
+		return children.get();
+	}
+
+	/**
+	 * Count a visit that has not yet been scored (a virtual loss, steering other threads
+	 * to other moves until the reward arrives)
+	 */
+	void visit() {
+		visits.incrementAndGet();
+	}
+
+	/**
+	 * Add the reward of a visit
+	 *
+	 * @param reward the reward, from 0 to 1
+	 */
+	void reward(double reward) {
+		rewards.addAndGet((long) (reward*SCALE));
+	}
+
+	/**
+	 * Gets the number of visits
+	 *
+	 * @return the number of visits
+	 */
+	long getVisits() {
+		return visits.get();
+	}
+
+	/**
+	 * Gets the mean reward per visit
+	 *
+	 * @return the mean reward (0 if never visited)
+	 */
+	double getMeanReward() {
+		long n = visits.get();
+		return (n == 0) ? 0.0 : rewards.get()/(SCALE*n);
+	}
+
+	private volatile MCTSNode                 parent;
+	private final Direction                   move;
+	private final long                        hash;
+	private final AtomicLong                  visits   = new AtomicLong();
+	private final AtomicLong                  rewards  = new AtomicLong(); // fixed point, SCALE per unit of reward
+	private final AtomicReference<MCTSNode[]> children = new AtomicReference<>();
+
+	private static final double SCALE = 1.0e6;
+}
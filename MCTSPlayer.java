@@ -0,0 +1,311 @@
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A Monte-Carlo Tree Search player for a Sokoban puzzle.  Each call to move runs a
+ * search from the puzzle's current position for a fixed time, on several threads that
+ * share one tree without locks (see MCTSNode), and returns the most visited move.
+ * Moves are chosen by UCT; a leaf is scored by a random playout (see PlayoutEngine)
+ * rewarding boxes on targets and boxes brought nearer to targets, and only half as much
+ * when the playout ends in a deadlock.  The tree is kept between calls: when the next
+ * call finds the puzzle at a position the tree has already explored, the search carries
+ * on from there.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class MCTSPlayer implements Player {
+	/**
+	 * Constructor
+	 *
+	 * @param puzzle the puzzle being played (cannot be null)
+	 */
+	public MCTSPlayer(Sokoban puzzle) {
+		if (puzzle == null)
+			throw new IllegalArgumentException("puzzle cannot be null");
+		this.puzzle  = puzzle;
+		this.threads = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Sets the time spent searching for each move
+	 *
+	 * @param millis the time budget in milliseconds (must be positive)
+	 */
+	public void setTimeBudget(long millis) {
+		if (millis <= 0)
+			throw new IllegalArgumentException("time budget must be positive");
+		budget = millis;
+	}
+
+	/**
+	 * Sets the number of search threads
+	 *
+	 * @param threads the number of threads (must be positive)
+	 */
+	public void setThreads(int threads) {
+		if (threads <= 0)
+			throw new IllegalArgumentException("threads must be positive");
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the most moves in a playout
+	 *
+	 * @param length the maximum playout length (must be positive)
+	 */
+	public void setPlayoutLength(int length) {
+		if (length <= 0)
+			throw new IllegalArgumentException("playout length must be positive");
+		playoutLength = length;
+	}
+
+	/**
+	 * Search for the best of the choices from the puzzle's current position
+	 *
+	 * @param choices possible directions for the player to choose from
+	 * @return the chosen direction
+	 */
+	@Override
+	public Direction move(Vector<Direction> choices) {
+		if (choices == null)
+			throw new IllegalArgumentException("cannot have null choices");
+		if (choices.isEmpty())
+			throw new IllegalArgumentException("cannot have empty choices");
+		final BitBoard start = puzzle.toBitBoard();
+		reuseOrReset(start.positionHash());
+		iterations = 0;
+		elapsed    = 0;
+		if (choices.size() == 1)
+			return choices.get(0);
+
+		final Snapshot      snapshot = start.snapshot();
+		final PlayoutEngine engine   = new PlayoutEngine(start);
+		engine.setMaxLength(playoutLength);
+		final int        bound    = Math.max(1, distance(start));
+		final long       begin    = System.nanoTime();
+		final long       deadline = begin+budget*1000000L;
+		final AtomicLong count    = new AtomicLong();
+		Thread[]         workers  = new Thread[threads];
+		for (int t=0; t<threads; t++) {
+			final SplittableRandom random = seeds.split();
+			workers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					BitBoard         board     = start.copy();
+					DeadlockDetector deadlocks = engine.newDetector();
+					long             done      = 0;
+					while (System.nanoTime() < deadline) {
+						board.restore(snapshot);
+						iterate(board, engine, deadlocks, random, bound);
+						done++;
+					}
+					count.addAndGet(done);
+				}
+			}, "mcts-"+t);
+			workers[t].setDaemon(true);
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		elapsed    = System.nanoTime()-begin;
+		iterations = count.get();
+
+		// the most visited legal move is the most robust choice
+		MCTSNode   best     = null;
+		MCTSNode[] children = root.getChildren();
+		if (children != null) {
+			for (MCTSNode child : children)
+				if (choices.contains(child.getMove()) && ((best == null) || (child.getVisits() > best.getVisits())))
+					best = child;
+		}
+		return (best == null) ? choices.get(0) : best.getMove();
+	}
+
+	/**
+	 * Gets the number of search iterations in the last call to move
+	 *
+	 * @return the number of iterations
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Gets the search rate in the last call to move, for sizing the time budget
+	 *
+	 * @return the iterations per second (0 if no search was needed)
+	 */
+	public double getIterationsPerSecond() {
+		return (elapsed == 0) ? 0.0 : iterations*1.0e9/elapsed;
+	}
+
+	/**
+	 * Gets the number of visits to the current root of the tree (including those kept
+	 * from earlier calls)
+	 *
+	 * @return the number of visits
+	 */
+	public long getRootVisits() {
+		return (root == null) ? 0 : root.getVisits();
+	}
+
+	/**
+	 * Carry on with the tree if it has already explored a position, or start a new one
+	 *
+	 * @param hash the position hash of the current position
+	 */
+	private void reuseOrReset(long hash) {
+		MCTSNode next = null;
+		if ((root != null) && (nodes.get() < MAX_NODES)) {
+			if (root.getHash() == hash)
+				next = root;
+			else if (root.getChildren() != null) {
+				for (MCTSNode child : root.getChildren())
+					if (child.getHash() == hash)
+						next = child;
+				if (next != null)
+					next.detach();
+			}
+		}
+		if (next == null) {
+			next = new MCTSNode(null, null, hash);
+			nodes.set(1);
+		}
+		root = next;
+	}
+
+	/**
+	 * One search iteration: select down the tree by UCT, expand a leaf, play out from it
+	 * and back the reward up to the root
+	 *
+	 * @param board a board at the root position, which is changed
+	 * @param engine the playout engine
+	 * @param deadlocks this thread's deadlock detector, which ends playouts
+	 * @param random this thread's random numbers
+	 * @param bound the sum of push distances at the root, for scaling rewards
+	 */
+	private void iterate(BitBoard board, PlayoutEngine engine, DeadlockDetector deadlocks, SplittableRandom random, int bound) {
+		MCTSNode node = root;
+		node.visit();
+		MCTSNode[] children;
+		while (((children = node.getChildren()) != null) && (children.length > 0)) {
+			node = select(node, children);
+			board.move(node.getMove());
+			node.visit();
+		}
+		if (!board.onTarget() && (children == null) && (nodes.get() < MAX_NODES)) {
+			MCTSNode[] kids = expansion(node, board);
+			children = node.expand(kids);
+			if (children == kids) // only the thread whose children were published counts them
+				nodes.addAndGet(kids.length);
+			if (children.length > 0) {
+				node = children[random.nextInt(children.length)];
+				board.move(node.getMove());
+				node.visit();
+			}
+		}
+		double reward = 0.0;
+		if (board.onTarget())
+			reward = 1.0;
+		else if ((children == null) || (children.length > 0)) { // not stuck
+			int     best       = engine.playout(board, random, null, null, deadlocks, null);
+			boolean deadlocked = (best == PlayoutEngine.DEADLOCKED);
+			if (board.onTarget())
+				reward = 1.0;
+			else {
+				// a deadlocked playout is scored where it ended, and discounted
+				int onTarget = deadlocked ? board.numOnTarget() : best;
+				reward = 0.5*onTarget/board.numTargets()+0.5*Math.max(0.0, 1.0-distance(board)/(double) bound);
+				if (deadlocked)
+					reward *= DEADLOCK_DISCOUNT;
+			}
+		}
+		for (MCTSNode n=node; ; n=n.getParent()) {
+			n.reward(reward);
+			if (n == root)
+				break;
+		}
+	}
+
+	/**
+	 * Choose the child with the best upper confidence bound (unvisited children first)
+	 *
+	 * @param parent the node being descended from
+	 * @param children its children
+	 * @return the chosen child
+	 */
+	private static MCTSNode select(MCTSNode parent, MCTSNode[] children) {
+		double   logN      = Math.log(Math.max(1, parent.getVisits()));
+		MCTSNode best      = null;
+		double   bestValue = Double.NEGATIVE_INFINITY;
+		for (MCTSNode child : children) {
+			long n = child.getVisits();
+			if (n == 0)
+				return child;
+			double value = child.getMeanReward()+EXPLORATION*Math.sqrt(logN/n);
+			if (value > bestValue) {
+				best      = child;
+				bestValue = value;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Build the children of a leaf: one for every legal move from its position
+	 *
+	 * @param node the leaf
+	 * @param board a board at the leaf's position (left unchanged)
+	 * @return the children
+	 */
+	private MCTSNode[] expansion(MCTSNode node, BitBoard board) {
+		MCTSNode[] kids = new MCTSNode[DIRECTIONS.length];
+		int        num  = 0;
+		for (Direction dir : DIRECTIONS) {
+			if (!board.canMove(dir))
+				continue;
+			boolean pushed = board.move(dir);
+			kids[num++] = new MCTSNode(node, dir, board.positionHash());
+			board.unmove(dir, pushed);
+		}
+		return Arrays.copyOf(kids, num);
+	}
+
+	/**
+	 * The sum over the boxes of the push distance to the nearest target
+	 *
+	 * @param board the board
+	 * @return the sum of push distances
+	 */
+	private static int distance(BitBoard board) {
+		Layout layout = board.getLayout();
+		int    sum    = 0;
+		for (int idx=0; idx<layout.numSquares(); idx++) {
+			if (board.hasBox(idx) && (layout.pushDistance(idx) != Layout.UNREACHABLE))
+				sum += layout.pushDistance(idx);
+		}
+		return sum;
+	}
+
+	private final Sokoban          puzzle;
+	private final SplittableRandom seeds         = new SplittableRandom();
+	private final AtomicLong       nodes         = new AtomicLong();
+	private MCTSNode               root          = null;
+	private int                    threads;
+	private long                   budget        = 1000;
+	private int                    playoutLength = 200;
+	private long                   iterations    = 0;
+	private long                   elapsed       = 0;
+
+	private static final Direction[] DIRECTIONS        = Direction.values();
+	private static final double      EXPLORATION       = Math.sqrt(2.0);
+	private static final int         MAX_NODES         = 2000000; // a bigger tree is dropped rather than reused
+	private static final double      DEADLOCK_DISCOUNT = 0.5;     // the share of its score a deadlocked playout earns
+}
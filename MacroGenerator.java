@@ -0,0 +1,363 @@
+import java.util.*;
+
+/**
+ * Macro pushes for a solver: runs of pushes of one box that a search can make as a single
+ * step, found from the walls of a level when it is loaded.
+ * <p>
+ * A tunnel is a corridor one square wide.  When a box is pushed along a tunnel with the
+ * actor in the tunnel behind it, the actor can do nothing useful but keep pushing, so
+ * the box is carried on until it leaves the tunnel, reaches a target or is blocked.
+ * <p>
+ * A goal room is a region holding targets (and no boxes at the start) that is joined to
+ * the rest of the level through a single entrance square.  Its targets are filled in a
+ * fixed order, deepest first, so when a box is pushed onto the entrance it is carried
+ * straight to the next target in that order, provided the targets before it are filled,
+ * the room holds no other boxes and a path for the box exists.
+ * <p>
+ * Macros prune the search a great deal, but they rule out some sequences of pushes, so a
+ * solution found with them is legal but may not have the fewest pushes possible.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class MacroGenerator {
+	/**
+	 * Constructor
+	 *
+	 * @param start the starting position, whose layout is analysed (cannot be null)
+	 */
+	public MacroGenerator(BitBoard start) {
+		if (start == null)
+			throw new IllegalArgumentException("start cannot be null");
+		int size = start.getLayout().numSquares();
+		layout   = start.getLayout();
+		board    = start.copy();
+		tunnels  = new long[2*Layout.words(size)];
+		roomOf   = new int[size];
+		entrance = new int[size];
+		visited  = new int[4*size];
+		prev     = new int[4*size];
+		queue    = new int[4*size];
+		Arrays.fill(roomOf, -1);
+		Arrays.fill(entrance, -1);
+		for (int idx=0; idx<size; idx++) {
+			if (layout.isWall(idx))
+				continue;
+			if (walled(idx, Direction.NORTH) && walled(idx, Direction.SOUTH))
+				Layout.set(tunnels, idx);      // a corridor running east-west
+			if (walled(idx, Direction.EAST) && walled(idx, Direction.WEST))
+				Layout.set(tunnels, size+idx); // a corridor running north-south
+		}
+		findRooms(start);
+	}
+
+	/**
+	 * Gets the number of goal rooms found
+	 *
+	 * @return the number of goal rooms
+	 */
+	public int numRooms() {
+		return fillOrders.size();
+	}
+
+	/**
+	 * Is a square part of a tunnel along a direction?
+	 *
+	 * @param idx the square index
+	 * @param dir the direction of travel
+	 * @return is the square walled on both sides across the direction?
+	 */
+	public boolean isTunnel(int idx, Direction dir) {
+		int axis = ((dir == Direction.EAST) || (dir == Direction.WEST)) ? 0 : 1;
+		return Layout.test(tunnels, axis*layout.numSquares()+idx);
+	}
+
+	/**
+	 * Extend a single push into a macro push, if one applies
+	 *
+	 * @param boxes the box bitset after the single push, changed to the boxes after the macro
+	 * @param box the square the box was pushed from
+	 * @param dir the direction of the push
+	 * @return the pushes of the macro, starting with dir (or null if no macro applies)
+	 */
+	public Direction[] extend(long[] boxes, int box, Direction dir) {
+		ArrayList<Direction> pushes = new ArrayList<>();
+		pushes.add(dir);
+		int actor = box;
+		int at    = layout.neighbour(box, dir);
+		// along a tunnel
+		while (!layout.isTarget(at) && isTunnel(at, dir) && isTunnel(actor, dir)) {
+			int next = layout.neighbour(at, dir);
+			if ((next < 0) || layout.isWall(next) || Layout.test(boxes, next) || layout.isDeadSquare(next))
+				break;
+			Layout.clear(boxes, at);
+			Layout.set(boxes, next);
+			pushes.add(dir);
+			actor = at;
+			at    = next;
+		}
+		// into a goal room
+		if (entrance[at] >= 0) {
+			List<Direction> path = roomPath(boxes, at, actor, entrance[at]);
+			if (path != null)
+				pushes.addAll(path);
+		}
+		if (pushes.size() == 1)
+			return null;
+		return pushes.toArray(new Direction[pushes.size()]);
+	}
+
+	/**
+	 * Carry a box from a room's entrance to the room's next target, if the room is
+	 * being filled in order (moves the box in the bitset if a path is found)
+	 *
+	 * @param boxes the box bitset
+	 * @param box the box, on the entrance
+	 * @param actor the actor square
+	 * @param room the room
+	 * @return the pushes (or null if the box is not to be carried in)
+	 */
+	private List<Direction> roomPath(long[] boxes, int box, int actor, int room) {
+		int[] order  = fillOrders.get(room);
+		int   target = -1;
+		for (int t : order) {
+			if (!Layout.test(boxes, t)) {
+				target = t;
+				break;
+			}
+		}
+		if (target < 0)
+			return null;
+		// every box in the room must be on a target filled earlier in the order
+		int filled = 0;
+		for (int idx=0; idx<roomOf.length; idx++) {
+			if ((roomOf[idx] == room) && Layout.test(boxes, idx)) {
+				if (!layout.isTarget(idx))
+					return null;
+				filled++;
+			}
+		}
+		for (int i=0; i<filled; i++)
+			if (!Layout.test(boxes, order[i]))
+				return null;
+		List<Direction> path = boxPath(boxes, box, actor, target, room);
+		if (path != null) {
+			Layout.clear(boxes, box);
+			Layout.set(boxes, target);
+		}
+		return path;
+	}
+
+	/**
+	 * The fewest pushes that take a box to a square inside a room, the other boxes staying put
+	 * (a breadth-first search over the box square and the side of the box the actor is on)
+	 *
+	 * @param boxes the box bitset
+	 * @param box the box square
+	 * @param actor the actor square
+	 * @param to the square to take the box to
+	 * @param room the room the box must stay in
+	 * @return the pushes (or null if there is no path)
+	 */
+	private List<Direction> boxPath(long[] boxes, int box, int actor, int to, int room) {
+		int size = layout.numSquares();
+		stamp++;
+		int head = 0;
+		int tail = 0;
+		// a state is side*size+square, side being the direction from the box to the actor
+		for (Direction side : DIRECTIONS) {
+			if (layout.neighbour(box, side) == actor) {
+				int state = side.ordinal()*size+box;
+				visited[state] = stamp;
+				prev[state]    = -1;
+				queue[tail++]  = state;
+			}
+		}
+		Layout.clear(boxes, box);
+		try {
+			while (head < tail) {
+				int state = queue[head++];
+				int at    = state%size;
+				Layout.set(boxes, at);
+				board.load(boxes, layout.neighbour(at, DIRECTIONS[state/size]));
+				board.normalizedActor();
+				long[] reach = board.reachable();
+				Layout.clear(boxes, at);
+				for (Direction dir : DIRECTIONS) {
+					int from = layout.neighbour(at, dir.reverse());
+					int next = layout.neighbour(at, dir);
+					if ((from < 0) || (next < 0) || !Layout.test(reach, from) || layout.isWall(next) ||
+						Layout.test(boxes, next) || (roomOf[next] != room))
+						continue;
+					int child = dir.reverse().ordinal()*size+next;
+					if (visited[child] == stamp)
+						continue;
+					visited[child] = stamp;
+					prev[child]    = state;
+					if (next == to)
+						return pathTo(child);
+					queue[tail++] = child;
+				}
+			}
+			return null;
+		} finally {
+			Layout.set(boxes, box);
+		}
+	}
+
+	/**
+	 * The pushes leading to a state of the box path search
+	 *
+	 * @param state the final state
+	 * @return the pushes
+	 */
+	private List<Direction> pathTo(int state) {
+		int                   size = layout.numSquares();
+		LinkedList<Direction> path = new LinkedList<>();
+		for (int s=state; prev[s] >= 0; s=prev[s])
+			path.addFirst(DIRECTIONS[s/size].reverse());
+		return path;
+	}
+
+	/**
+	 * Find the goal rooms: for every square that could be an entrance, the regions cut
+	 * off by walling it that hold targets, no boxes and not the actor, keeping the largest
+	 * rooms that do not overlap
+	 *
+	 * @param start the starting position
+	 */
+	private void findRooms(BitBoard start) {
+		int    size     = layout.numSquares();
+		long[]        interior = region(start.getActor(), -1);
+		List<long[]>  rooms    = new ArrayList<>();
+		List<Integer> doors    = new ArrayList<>();
+		for (int door=0; door<size; door++) {
+			if (!Layout.test(interior, door) || layout.isTarget(door))
+				continue;
+			for (Direction dir : DIRECTIONS) {
+				int side = layout.neighbour(door, dir);
+				if ((side < 0) || !Layout.test(interior, side))
+					continue;
+				long[] room = region(side, door);
+				if (Layout.test(room, start.getActor()) || (layout.countBoth(room, layout.targets()) == 0) ||
+					(layout.countBoth(room, start.boxes()) > 0))
+					continue;
+				rooms.add(room);
+				doors.add(door);
+			}
+		}
+		// the largest rooms first, skipping any that overlap a room already taken
+		Integer[] bySize = new Integer[rooms.size()];
+		for (int i=0; i<bySize.length; i++)
+			bySize[i] = i;
+		final List<long[]> all = rooms;
+		Arrays.sort(bySize, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(Layout.count(all.get(b)), Layout.count(all.get(a)));
+			}
+		});
+		long[] taken = new long[Layout.words(size)];
+		for (int i : bySize) {
+			long[] room = rooms.get(i);
+			int    door = doors.get(i);
+			if ((layout.countBoth(room, taken) > 0) || Layout.test(taken, door))
+				continue;
+			int number = fillOrders.size();
+			for (int idx=0; idx<size; idx++) {
+				if (Layout.test(room, idx)) {
+					roomOf[idx] = number;
+					Layout.set(taken, idx);
+				}
+			}
+			Layout.set(taken, door);
+			entrance[door] = number;
+			fillOrders.add(fillOrder(room, door));
+		}
+	}
+
+	/**
+	 * The order to fill a room's targets: the farthest from the entrance first
+	 *
+	 * @param room the room's squares
+	 * @param door the entrance
+	 * @return the target squares in order
+	 */
+	private int[] fillOrder(long[] room, int door) {
+		int   size  = layout.numSquares();
+		int[] dist  = new int[size];
+		int[] order = new int[size];
+		int   head  = 0;
+		int   tail  = 0;
+		Arrays.fill(dist, -1);
+		dist[door]    = 0;
+		order[tail++] = door;
+		while (head < tail) {
+			int idx = order[head++];
+			for (Direction dir : DIRECTIONS) {
+				int next = layout.neighbour(idx, dir);
+				if ((next >= 0) && Layout.test(room, next) && (dist[next] < 0)) {
+					dist[next]    = dist[idx]+1;
+					order[tail++] = next;
+				}
+			}
+		}
+		int[] targets = new int[layout.countBoth(room, layout.targets())];
+		int   num     = targets.length;
+		for (int i=0; i<tail; i++) // order holds the room by distance, so walk it backwards
+			if (layout.isTarget(order[i]))
+				targets[--num] = order[i];
+		return targets;
+	}
+
+	/**
+	 * The squares reachable on foot from a square, through anything but walls
+	 *
+	 * @param from the square to start from
+	 * @param blocked a square to treat as a wall (or -1)
+	 * @return the region as a bitset
+	 */
+	private long[] region(int from, int blocked) {
+		long[] seen  = new long[Layout.words(layout.numSquares())];
+		int[]  stack = new int[layout.numSquares()];
+		int    top   = 0;
+		Layout.set(seen, from);
+		stack[top++] = from;
+		while (top > 0) {
+			int idx = stack[--top];
+			for (Direction dir : DIRECTIONS) {
+				int next = layout.neighbour(idx, dir);
+				if ((next >= 0) && (next != blocked) && !layout.isWall(next) && !Layout.test(seen, next)) {
+					Layout.set(seen, next);
+					stack[top++] = next;
+				}
+			}
+		}
+		return seen;
+	}
+
+	/**
+	 * Is the neighbour of a square in a direction a wall (or off the grid)?
+	 *
+	 * @param idx the square index
+	 * @param dir the direction
+	 * @return is the neighbour a wall?
+	 */
+	private boolean walled(int idx, Direction dir) {
+		int next = layout.neighbour(idx, dir);
+		return (next < 0) || layout.isWall(next);
+	}
+
+	private final Layout      layout;
+	private final BitBoard    board;      // for the actor's reach during a box path search
+	private final long[]      tunnels;    // east-west tunnel squares, then north-south ones
+	private final int[]       roomOf;     // the goal room of each square (-1 for none)
+	private final int[]       entrance;   // the goal room each square is the entrance of (-1 for none)
+	private final List<int[]> fillOrders = new ArrayList<>();
+	private final int[]       visited;    // stamps of the box path search states
+	private final int[]       prev;
+	private final int[]       queue;
+	private int               stamp      = 0;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
@@ -0,0 +1,307 @@
+import java.util.*;
+
+/**
+ * A lower bound on the pushes needed to solve a position: the cost of the cheapest way
+ * to give every box its own target, where a box's cost for a target is the layout's
+ * push distance from the box to that target (see Layout.pushDistance).  Two boxes can
+ * no longer share their nearest target, so this is never below the sum of nearest
+ * target distances, and it finds positions where the boxes cannot all be matched at all.
+ * <p>
+ * The matching is found by the Hungarian algorithm, which keeps dual prices on the boxes
+ * and targets.  Once a position is loaded (an O(n^3) solve for n boxes), the bound for
+ * the position after one push only needs the pushed box's row of costs changed and one
+ * augmenting path, which is O(n^2).  The prices and matching found for a push can be
+ * kept (see pushedMatching) and restored when the position after the push is expanded,
+ * also in O(n^2), so a search only has to solve its first position from scratch.
+ * <p>
+ * A push moves one box one square, which takes it at most one push closer to any
+ * target, so the bound falls by at most one per push (it can rise by more); that is what
+ * makes it consistent as well as admissible.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class MatchingHeuristic {
+	/**
+	 * Constructor
+	 *
+	 * @param layout the layout of the positions to be estimated (cannot be null)
+	 */
+	public MatchingHeuristic(Layout layout) {
+		if (layout == null)
+			throw new IllegalArgumentException("layout cannot be null");
+		this.layout = layout;
+		n           = layout.numTargets();
+		cost        = new int[n*n];
+		saved       = new int[n];
+		squares     = new int[n];
+		u           = new int[n+1];
+		v           = new int[n+1];
+		p           = new int[n+1];
+		workU       = new int[n+1];
+		workV       = new int[n+1];
+		workP       = new int[n+1];
+		slotAt      = new int[layout.numSquares()];
+		minv        = new int[n+1];
+		way         = new int[n+1];
+		used        = new boolean[n+1];
+	}
+
+	/**
+	 * Load a position, solving its matching from scratch
+	 *
+	 * @param boxes the box bitset (one box for each target)
+	 * @return the lower bound (or Layout.UNREACHABLE if the boxes cannot all reach targets)
+	 */
+	public int load(long[] boxes) {
+		if (boxes == null)
+			throw new IllegalArgumentException("boxes cannot be null");
+		if (Layout.count(boxes) != n)
+			throw new IllegalArgumentException("must be one box for each target");
+		int slot = 0;
+		for (int i=0; i<boxes.length; i++) {
+			for (long word=boxes[i]; word != 0; word &= word-1) {
+				squares[slot] = (i << 6)+Long.numberOfTrailingZeros(word);
+				fillRow(slot, squares[slot]);
+				slot++;
+			}
+		}
+		Arrays.fill(u, 0);
+		Arrays.fill(v, 0);
+		Arrays.fill(p, 0);
+		for (int i=1; i<=n; i++)
+			augment(i, u, v, p);
+		bound = total(p);
+		return bound;
+	}
+
+	/**
+	 * Load a position whose matching was saved by an earlier push, instead of solving it
+	 *
+	 * @param boxes the box bitset (one box for each target)
+	 * @param matching the matching saved for the position (see pushedMatching)
+	 * @return the lower bound (or Layout.UNREACHABLE if the boxes cannot all reach targets)
+	 */
+	public int load(long[] boxes, int[] matching) {
+		if (boxes == null)
+			throw new IllegalArgumentException("boxes cannot be null");
+		if ((matching == null) || (matching.length != 2*n))
+			throw new IllegalArgumentException("invalid matching");
+		int slot = 0;
+		for (int i=0; i<boxes.length; i++) {
+			for (long word=boxes[i]; word != 0; word &= word-1) {
+				squares[slot] = (i << 6)+Long.numberOfTrailingZeros(word);
+				slotAt[squares[slot]] = slot;
+				fillRow(slot, squares[slot]);
+				slot++;
+			}
+		}
+		if (slot != n)
+			throw new IllegalArgumentException("must be one box for each target");
+		u[0] = 0;
+		v[0] = 0;
+		p[0] = 0;
+		for (int j=1; j<=n; j++) {
+			int row = slotAt[matching[n+j-1]]+1;
+			p[j]    = row;
+			v[j]    = matching[j-1];
+			u[row]  = cost[(row-1)*n+j-1]-v[j]; // a matched pair is tight
+		}
+		bound = total(p);
+		return bound;
+	}
+
+	/**
+	 * Gets the lower bound for the loaded position
+	 *
+	 * @return the lower bound (or Layout.UNREACHABLE)
+	 */
+	public int bound() {
+		return bound;
+	}
+
+	/**
+	 * The lower bound for the loaded position after one box is pushed (the loaded position
+	 * is left as it is, so every push from a position can be tried in turn)
+	 *
+	 * @param from the square the box is pushed from (must hold a box)
+	 * @param to the square the box ends up on
+	 * @return the lower bound after the push (or Layout.UNREACHABLE)
+	 */
+	public int push(int from, int to) {
+		int slot = slotOf(from);
+		System.arraycopy(u, 0, workU, 0, n+1);
+		System.arraycopy(v, 0, workV, 0, n+1);
+		System.arraycopy(p, 0, workP, 0, n+1);
+		System.arraycopy(cost, slot*n, saved, 0, n);
+		fillRow(slot, to);
+		int result = update(slot, workU, workV, workP);
+		System.arraycopy(saved, 0, cost, slot*n, n);
+		pushedSlot = slot;
+		pushedTo   = to;
+		return result;
+	}
+
+	/**
+	 * The matching found by the last push, to be restored by load when the position after
+	 * the push is expanded: the target prices, then the square of the box matched to each
+	 * target
+	 *
+	 * @return the matching (a new array of 2n values)
+	 */
+	public int[] pushedMatching() {
+		int[] matching = new int[2*n];
+		for (int j=1; j<=n; j++) {
+			int slot = workP[j]-1;
+			matching[j-1]   = workV[j];
+			matching[n+j-1] = (slot == pushedSlot) ? pushedTo : squares[slot];
+		}
+		return matching;
+	}
+
+	/**
+	 * Move a box in the loaded position, updating the matching
+	 *
+	 * @param from the square the box is pushed from (must hold a box)
+	 * @param to the square the box ends up on
+	 * @return the lower bound after the move (or Layout.UNREACHABLE)
+	 */
+	public int move(int from, int to) {
+		int slot = slotOf(from);
+		squares[slot] = to;
+		fillRow(slot, to);
+		bound = update(slot, u, v, p);
+		return bound;
+	}
+
+	/**
+	 * Re-match one box whose row of costs has changed: free its target, lower its price
+	 * until every cost in its row is feasible again and find one augmenting path
+	 *
+	 * @param slot the box's row
+	 * @param u the box prices
+	 * @param v the target prices
+	 * @param p the box matched to each target
+	 * @return the cost of the new matching
+	 */
+	private int update(int slot, int[] u, int[] v, int[] p) {
+		int row = slot+1;
+		int min = Integer.MAX_VALUE;
+		for (int j=1; j<=n; j++) {
+			if (p[j] == row)
+				p[j] = 0;
+			min = Math.min(min, cost[slot*n+j-1]-v[j]);
+		}
+		u[row] = min;
+		augment(row, u, v, p);
+		return total(p);
+	}
+
+	/**
+	 * Match one more box by the shortest augmenting path in reduced costs, adjusting the
+	 * prices so every matched pair stays tight (the O(n^2) step of the Hungarian algorithm)
+	 *
+	 * @param row the unmatched box (numbered from 1)
+	 * @param u the box prices
+	 * @param v the target prices
+	 * @param p the box matched to each target (0 for none; p[0] is used as scratch)
+	 */
+	private void augment(int row, int[] u, int[] v, int[] p) {
+		p[0] = row;
+		int j0 = 0;
+		Arrays.fill(minv, Integer.MAX_VALUE);
+		Arrays.fill(used, false);
+		do {
+			used[j0] = true;
+			int i0    = p[j0];
+			int delta = Integer.MAX_VALUE;
+			int j1    = 0;
+			for (int j=1; j<=n; j++) {
+				if (used[j])
+					continue;
+				int cur = cost[(i0-1)*n+j-1]-u[i0]-v[j];
+				if (cur < minv[j]) {
+					minv[j] = cur;
+					way[j]  = j0;
+				}
+				if (minv[j] < delta) {
+					delta = minv[j];
+					j1    = j;
+				}
+			}
+			for (int j=0; j<=n; j++) {
+				if (used[j]) {
+					u[p[j]] += delta;
+					v[j]    -= delta;
+				} else
+					minv[j] -= delta;
+			}
+			j0 = j1;
+		} while (p[j0] != 0);
+		do {
+			int j1 = way[j0];
+			p[j0] = p[j1];
+			j0    = j1;
+		} while (j0 != 0);
+	}
+
+	/**
+	 * The cost of a complete matching
+	 *
+	 * @param p the box matched to each target
+	 * @return the sum of the matched costs (or Layout.UNREACHABLE if any pair cannot be pushed together)
+	 */
+	private int total(int[] p) {
+		int sum = 0;
+		for (int j=1; j<=n; j++)
+			sum += cost[(p[j]-1)*n+j-1];
+		return (sum >= NO_PATH) ? Layout.UNREACHABLE : sum;
+	}
+
+	/**
+	 * Fill a box's row of costs from its square
+	 *
+	 * @param slot the box's row
+	 * @param square the box's square
+	 */
+	private void fillRow(int slot, int square) {
+		for (int t=0; t<n; t++) {
+			int dist = layout.pushDistance(square, t);
+			cost[slot*n+t] = (dist == Layout.UNREACHABLE) ? NO_PATH : dist;
+		}
+	}
+
+	/**
+	 * The row of the box on a square in the loaded position
+	 *
+	 * @param square the square
+	 * @return the row
+	 */
+	private int slotOf(int square) {
+		for (int slot=0; slot<n; slot++)
+			if (squares[slot] == square)
+				return slot;
+		throw new IllegalArgumentException("no box on square "+square);
+	}
+
+	private final Layout    layout;
+	private final int       n;       // boxes (and targets)
+	private final int[]     cost;    // indexed by box row*n+target
+	private final int[]     saved;   // a row of costs put aside by push
+	private final int[]     squares; // the square of each box row
+	private final int[]     slotAt;  // the row of the box on each square, while loading a saved matching
+	private final int[]     u;       // the loaded position's prices and matching, numbered from 1
+	private final int[]     v;
+	private final int[]     p;
+	private final int[]     workU;   // copies changed by push
+	private final int[]     workV;
+	private final int[]     workP;
+	private final int[]     minv;    // scratch for augment
+	private final int[]     way;
+	private final boolean[] used;
+	private int             bound      = 0;
+	private int             pushedSlot = -1; // the row and new square of the box moved by the last push
+	private int             pushedTo   = -1;
+
+	private static final int NO_PATH = 1 << 20; // the cost of an impossible pair: more than any real matching
+}
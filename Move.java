@@ -0,0 +1,73 @@
+
+/**
+ * A record of one move in a Sokoban puzzle: the direction, and whether a box was pushed.
+ * That is all that is needed to reverse the move exactly.  There are only eight moves, so
+ * they are shared rather than made for every move (see of).
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class Move {
+	/**
+	 * Constructor
+	 *
+	 * @param dir the direction moved
+	 * @param pushed was a box pushed?
+	 */
+	private Move(Direction dir, boolean pushed) {
+		this.dir    = dir;
+		this.pushed = pushed;
+	}
+
+	/**
+	 * Gets the move in a direction
+	 *
+	 * @param dir the direction moved (cannot be null)
+	 * @param pushed was a box pushed?
+	 * @return the move (the same object every time)
+	 */
+	public static Move of(Direction dir, boolean pushed) {
+		if (dir == null)
+			throw new IllegalArgumentException("dir cannot be null");
+		return MOVES[2*dir.ordinal()+(pushed ? 1 : 0)];
+	}
+
+	/**
+	 * Gets the direction moved
+	 *
+	 * @return the direction
+	 */
+	public Direction getDir() {
+		return dir;
+	}
+
+	/**
+	 * Was a box pushed?
+	 *
+	 * @return was a box pushed?
+	 */
+	public boolean isPush() {
+		return pushed;
+	}
+
+	/**
+	 * A String representation of the move
+	 *
+	 * @return the String representation
+	 */
+	@Override
+	public String toString() {
+		return pushed ? dir+" (push)" : ""+dir;
+	}
+
+	private final Direction dir;
+	private final boolean   pushed;
+
+	private static final Move[] MOVES = new Move[2*Direction.values().length]; // by direction, then push
+	static {
+		for (Direction dir : Direction.values()) {
+			MOVES[2*dir.ordinal()]   = new Move(dir, false);
+			MOVES[2*dir.ordinal()+1] = new Move(dir, true);
+		}
+	}
+}
@@ -0,0 +1,389 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * A push-optimal A* solver for a Sokoban puzzle that searches on several threads at once
+ * by hash-distributed A*.  Every state has an owner, the worker picked by its Zobrist
+ * hash.  Only the owner checks the state against the seen states, and only the owner
+ * keeps it on an open list.  So each worker has its own shard of the transposition table
+ * and its own open list, with no locks.  A worker that generates a state owned by another
+ * worker posts it to that worker's lock-free mailbox.
+ * <p>
+ * The workers do not expand nodes in exactly best-first order, so the first solution found
+ * may not be the best.  It is kept as an incumbent.  Every node that cannot beat it (with
+ * pushes plus estimate at least its pushes) is dropped, and the search ends when no work
+ * is left anywhere.  A single count of the nodes posted but not yet dealt with tells the
+ * workers when that is.  A worker with nothing to do parks its thread rather than
+ * spinning, and is woken when a node is posted to it or the search ends.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class ParallelSolver extends Solver {
+	/**
+	 * Construct a solver for the current position of a Sokoban puzzle
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 */
+	public ParallelSolver(Sokoban puzzle) {
+		super(puzzle);
+	}
+
+	/**
+	 * Construct a solver for a standard Sokoban screen file passed as a String
+	 *
+	 * @param screen the screen file as a String
+	 */
+	public ParallelSolver(String screen) {
+		super(screen);
+	}
+
+	/**
+	 * Sets the number of worker threads
+	 *
+	 * @param threads the number of threads (must be positive)
+	 */
+	public void setThreads(int threads) {
+		if (threads <= 0)
+			throw new IllegalArgumentException("threads must be positive");
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the memory used by the transposition table, shared out among the workers
+	 *
+	 * @param bytes the total table size in bytes
+	 */
+	public void setTableBytes(long bytes) {
+		if (bytes <= 0)
+			throw new IllegalArgumentException("table size must be positive");
+		tableBytes = bytes;
+	}
+
+	/**
+	 * Sets a limit on the time taken by solve
+	 *
+	 * @param millis the time limit in milliseconds (0 for no limit)
+	 */
+	@Override
+	public void setTimeLimit(long millis) {
+		super.setTimeLimit(millis);
+		timeLimit = millis;
+	}
+
+	/**
+	 * Sets a limit on the heap used during solve
+	 *
+	 * @param bytes the memory limit in bytes (0 for no limit)
+	 */
+	@Override
+	public void setMemoryLimit(long bytes) {
+		super.setMemoryLimit(bytes);
+		memoryLimit = bytes;
+	}
+
+	/**
+	 * Sets whether the workers use macro pushes
+	 *
+	 * @param on should macro pushes be used?
+	 */
+	@Override
+	public void setMacros(boolean on) {
+		macros = on;
+	}
+
+	/**
+	 * Stop a solve, from another thread: every worker stops at its next expansion
+	 */
+	@Override
+	public void cancel() {
+		super.cancel();
+		stop();
+	}
+
+	/**
+	 * Gets the number of nodes expanded by all the workers in the last solve
+	 *
+	 * @return the number of nodes expanded
+	 */
+	@Override
+	public long getNodesExpanded() {
+		long sum = 0;
+		for (ParallelWorker worker : workers)
+			sum += worker.getNodesExpanded();
+		return sum;
+	}
+
+	/**
+	 * Gets the peak heap use seen during the last solve, by this solver or any worker
+	 *
+	 * @return the peak heap use in bytes
+	 */
+	@Override
+	public long getPeakMemory() {
+		long peak = super.getPeakMemory();
+		for (ParallelWorker worker : workers)
+			peak = Math.max(peak, worker.getPeakMemory());
+		return peak;
+	}
+
+	/**
+	 * Gets the number of nodes each worker expanded in the last solve, to show how evenly
+	 * the hash shared out the work
+	 *
+	 * @return the nodes expanded by each worker
+	 */
+	public long[] getWorkerNodes() {
+		long[] nodes = new long[workers.size()];
+		for (int i=0; i<nodes.length; i++)
+			nodes[i] = workers.get(i).getNodesExpanded();
+		return nodes;
+	}
+
+	/**
+	 * A short report of the last solve, with the number of threads
+	 *
+	 * @return the report
+	 */
+	@Override
+	public String report() {
+		return super.report()+", "+workers.size()+" threads";
+	}
+
+	/**
+	 * Hash-distributed A* over box configurations
+	 *
+	 * @return the moves that solve the puzzle (or null if none was found within the limits)
+	 */
+	@Override
+	protected List<Direction> search() {
+		workers.clear();
+		mailboxes.clear();
+		best.set(null);
+		outstanding.set(0);
+		stopped = outOfTime(); // canceled before the solve began
+		for (int i=0; i<threads; i++) {
+			ParallelWorker worker = new ParallelWorker(this, i, Math.max(MIN_TABLE_BYTES, tableBytes/threads));
+			worker.setTimeLimit(timeLimit);
+			worker.setMemoryLimit(memoryLimit);
+			worker.setMacros(macros);
+			workers.add(worker);
+			mailboxes.add(new ConcurrentLinkedQueue<SearchNode>());
+		}
+		SearchNode first = startNode();
+		first.setEstimate(new MatchingHeuristic(layout).load(first.getBoxes()));
+		if (first.getEstimate() == Layout.UNREACHABLE)
+			return null;
+		outstanding.set(1);
+		post(first);
+
+		Thread[] started = new Thread[threads];
+		for (int i=0; i<threads; i++) {
+			started[i] = new Thread(workers.get(i), "solver-"+i);
+			started[i].setDaemon(true);
+		}
+		running = started;
+		for (Thread thread : started)
+			thread.start();
+		for (Thread thread : started) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				stopped = true;
+				Thread.currentThread().interrupt();
+			}
+		}
+		running = null;
+		if (stopped) // a worker reached a limit, or the solve was canceled
+			stopAtLimit();
+		SearchNode goal = best.get();
+		return ((goal == null) || limitReached()) ? null : solution(goal);
+	}
+
+	/**
+	 * Post a node to its owner's mailbox (the caller has already counted it as outstanding)
+	 *
+	 * @param node the node
+	 */
+	void post(SearchNode node) {
+		int id = owner(node.getHash());
+		mailboxes.get(id).add(node);
+		wake(id);
+	}
+
+	/**
+	 * Count nodes posted, before they are posted
+	 *
+	 * @param count the number of nodes (negative when fewer are posted than were finished)
+	 */
+	void posting(long count) {
+		outstanding.addAndGet(count);
+	}
+
+	/**
+	 * Count nodes dealt with: expanded, or dropped as duplicates or as unable to beat the incumbent
+	 *
+	 * @param count the number of nodes
+	 */
+	void finished(long count) {
+		if (outstanding.addAndGet(-count) == 0)
+			wakeAll(); // the search is over
+	}
+
+	/**
+	 * Is there no work left anywhere?
+	 *
+	 * @return is every posted node dealt with?
+	 */
+	boolean isDone() {
+		return stopped || (outstanding.get() == 0);
+	}
+
+	/**
+	 * Stop every worker (when one reaches a limit)
+	 */
+	void stop() {
+		stopped = true;
+		wakeAll();
+	}
+
+	/**
+	 * Park the calling worker until a node is posted to it or the search ends.  The park
+	 * is bounded, so a wake-up that comes just before the park cannot strand the worker.
+	 */
+	void idle() {
+		if (!isDone())
+			LockSupport.parkNanos(this, IDLE_NANOS);
+	}
+
+	/**
+	 * Wake a worker that may be parked waiting for work
+	 *
+	 * @param id the worker number
+	 */
+	private void wake(int id) {
+		Thread[] started = running;
+		if (started != null)
+			LockSupport.unpark(started[id]);
+	}
+
+	/**
+	 * Wake every worker
+	 */
+	private void wakeAll() {
+		Thread[] started = running;
+		if (started != null)
+			for (Thread thread : started)
+				LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Offer a solved node as the incumbent
+	 *
+	 * @param goal the solved node
+	 */
+	void offer(SearchNode goal) {
+		SearchNode current;
+		do {
+			current = best.get();
+			if ((current != null) && (current.getPushes() <= goal.getPushes()))
+				return;
+		} while (!best.compareAndSet(current, goal));
+	}
+
+	/**
+	 * The pushes of the incumbent: nodes that cannot do better are not worth expanding
+	 *
+	 * @return the incumbent's pushes (or Layout.UNREACHABLE if there is none yet)
+	 */
+	int bestPushes() {
+		SearchNode goal = best.get();
+		return (goal == null) ? Layout.UNREACHABLE : goal.getPushes();
+	}
+
+	/**
+	 * Gets a worker's mailbox
+	 *
+	 * @param id the worker number
+	 * @return the mailbox
+	 */
+	Queue<SearchNode> mailbox(int id) {
+		return mailboxes.get(id);
+	}
+
+	/**
+	 * The worker that owns a state
+	 *
+	 * @param hash the state's normalized Zobrist hash
+	 * @return the worker number
+	 */
+	int owner(long hash) {
+		return (int) ((hash >>> 1)%threads);
+	}
+
+	/**
+	 * Measure how the solver scales: after a warm up, solve a screen file with 1, 2, 4, ...
+	 * threads up to a maximum, reporting the time, the speedup over one thread, the CPU time used by the
+	 * whole process and the nodes each worker expanded.
+	 * java ParallelSolver screens/screen.1 [max threads] [time limit ms]
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("usage: java ParallelSolver <screen file> [max threads] [time limit ms]");
+			return;
+		}
+		int  max    = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long limit  = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+		long single = 0;
+		System.out.println(args[0]+": "+Runtime.getRuntime().availableProcessors()+" processors available");
+		ParallelSolver warmup = new ParallelSolver(new Sokoban(new File(args[0]), true)); // so one thread is not timed cold
+		warmup.setThreads(1);
+		warmup.setTimeLimit(limit);
+		warmup.solve();
+		for (int threads=1; threads<=max; threads*=2) {
+			ParallelSolver solver = new ParallelSolver(new Sokoban(new File(args[0]), true));
+			solver.setThreads(threads);
+			solver.setTimeLimit(limit);
+			long cpu = processCpuNanos();
+			solver.solve();
+			cpu = processCpuNanos()-cpu;
+			if (threads == 1)
+				single = solver.getElapsedMillis();
+			System.out.println(String.format("%2d threads: %s, speedup %.2f, cpu %d ms, worker nodes %s", threads,
+				solver.report(), single/(double) Math.max(1, solver.getElapsedMillis()), cpu/1000000,
+				Arrays.toString(solver.getWorkerNodes())));
+		}
+	}
+
+	/**
+	 * The CPU time used by the whole process so far
+	 *
+	 * @return the CPU time in nanoseconds (or 0 if the JVM does not report it)
+	 */
+	private static long processCpuNanos() {
+		java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean)
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		return 0;
+	}
+
+	private final List<ParallelWorker>                    workers     = new ArrayList<>();
+	private final List<ConcurrentLinkedQueue<SearchNode>> mailboxes   = new ArrayList<>();
+	private final AtomicReference<SearchNode>             best        = new AtomicReference<>();
+	private final AtomicLong                              outstanding = new AtomicLong(); // nodes posted but not yet dealt with
+	private volatile boolean                              stopped     = false;
+	private volatile Thread[]                             running     = null; // the worker threads, while solving
+	private int                                           threads     = Runtime.getRuntime().availableProcessors();
+	private long                                          tableBytes  = Math.min(DEFAULT_TABLE_BYTES, Runtime.getRuntime().maxMemory()/4);
+	private long                                          timeLimit   = 0;
+	private long                                          memoryLimit = 0;
+	private boolean                                       macros      = false;
+
+	private static final long DEFAULT_TABLE_BYTES = 256L << 20;
+	private static final long MIN_TABLE_BYTES     = 1L << 20;
+	private static final long IDLE_NANOS          = 1000000; // the longest an idle worker parks before looking again
+}
@@ -0,0 +1,145 @@
+import java.util.*;
+
+/**
+ * One worker of a ParallelSolver: an A* search over the states the worker owns, with its
+ * own open list, its own shard of the transposition table and its own boards for
+ * generating successors.  States it generates for other workers are posted to their
+ * mailboxes, and it takes in the states posted to its own mailbox between expansions.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+class ParallelWorker extends Solver implements Runnable {
+	/**
+	 * Constructor
+	 *
+	 * @param solver the solver this worker is part of
+	 * @param id the worker number
+	 * @param tableBytes the size of this worker's shard of the transposition table in bytes
+	 */
+	ParallelWorker(ParallelSolver solver, int id, long tableBytes) {
+		super(solver.start);
+		this.solver     = solver;
+		this.id         = id;
+		this.tableBytes = tableBytes;
+	}
+
+	/**
+	 * Run this worker's part of the search
+	 */
+	@Override
+	public void run() {
+		solve();
+	}
+
+	/**
+	 * Expand the best owned node, taking in posted nodes, until there is no work left
+	 * anywhere (the solution is handed to the solver rather than returned)
+	 *
+	 * @return null
+	 */
+	@Override
+	protected List<Direction> search() {
+		PriorityQueue<SearchNode> open       = new PriorityQueue<>(ORDER);
+		ArrayList<SearchNode>     successors = new ArrayList<>();
+		ArrayList<SearchNode>     kept       = new ArrayList<>();
+		Queue<SearchNode>         mailbox    = solver.mailbox(id);
+		MatchingHeuristic         matching   = new MatchingHeuristic(layout);
+		table = new TranspositionTable(layout, tableBytes);
+		while (!solver.isDone()) {
+			receive(mailbox, open);
+			SearchNode node = open.poll();
+			if (node == null) {
+				solver.idle(); // sleep until work is posted or the search ends
+				continue;
+			}
+			int seen = table.get(node.getHash(), node.getBoxes(), node.getActor());
+			if (((seen != TranspositionTable.NOT_FOUND) && (seen < node.getPushes())) ||
+				(node.getPushes()+node.getEstimate() >= solver.bestPushes())) {
+				solver.finished(1);
+				continue;
+			}
+			if (isSolved(node)) {
+				solver.offer(node);
+				solver.finished(1);
+				continue;
+			}
+			if (outOfTime()) {
+				solver.stop();
+				break;
+			}
+			expanded();
+			successors(node, successors);
+			if (!successors.isEmpty()) {
+				if (node.getMatching() == null)
+					matching.load(node.getBoxes());
+				else
+					matching.load(node.getBoxes(), node.getMatching());
+				node.setMatching(null); // an expanded node is only kept as a parent
+			}
+			kept.clear();
+			for (SearchNode child : successors) {
+				int estimate = matching.push(child.getBox(), pushedTo(child));
+				if ((estimate == Layout.UNREACHABLE) || (child.getPushes()+estimate >= solver.bestPushes()))
+					continue;
+				child.setEstimate(estimate);
+				child.setMatching(matching.pushedMatching());
+				kept.add(child);
+			}
+			// count the children before the parent is finished, so the count never falsely reaches zero
+			solver.posting(kept.size()-1);
+			for (SearchNode child : kept) {
+				if (solver.owner(child.getHash()) == id)
+					accept(child, open);
+				else
+					solver.post(child);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Take in every node posted to this worker
+	 *
+	 * @param mailbox this worker's mailbox
+	 * @param open this worker's open list
+	 */
+	private void receive(Queue<SearchNode> mailbox, PriorityQueue<SearchNode> open) {
+		SearchNode node;
+		while ((node = mailbox.poll()) != null)
+			accept(node, open);
+	}
+
+	/**
+	 * Add an owned node to the open list, unless its state was already reached with no more pushes
+	 *
+	 * @param node the node
+	 * @param open this worker's open list
+	 */
+	private void accept(SearchNode node, PriorityQueue<SearchNode> open) {
+		int seen = table.get(node.getHash(), node.getBoxes(), node.getActor());
+		if ((seen != TranspositionTable.NOT_FOUND) && (seen <= node.getPushes())) {
+			solver.finished(1);
+			return;
+		}
+		table.put(node.getHash(), node.getBoxes(), node.getActor(), node.getPushes());
+		open.add(node);
+	}
+
+	private final ParallelSolver solver;
+	private final int            id;
+	private final long           tableBytes;
+	private TranspositionTable   table = null;
+
+	// lowest f = pushes+estimate first, then the deepest (closest to a solution)
+	private static final Comparator<SearchNode> ORDER = new Comparator<SearchNode>() {
+		@Override
+		public int compare(SearchNode a, SearchNode b) {
+			int fa = a.getPushes()+a.getEstimate();
+			int fb = b.getPushes()+b.getEstimate();
+			if (fa != fb)
+				return Integer.compare(fa, fb);
+			return Integer.compare(b.getPushes(), a.getPushes());
+		}
+	};
+}
@@ -0,0 +1,222 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * A Monte-Carlo playout engine for a Sokoban puzzle.  A playout makes moves from a
+ * position until the puzzle is solved, a push deadlocks it (see DeadlockDetector), the
+ * actor has no legal move or a length limit is reached.  Moves are chosen uniformly at
+ * random, or by a Player (a policy) when one is given.  Playouts are split into
+ * fork/join tasks, and each task plays on its own copy of the BitBoard (which shares the
+ * static layout) with its own DeadlockDetector, so no state is shared between threads
+ * and the statistics of the tasks are merged at the end.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class PlayoutEngine {
+	/**
+	 * Construct an engine for the current position of a Sokoban puzzle
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 */
+	public PlayoutEngine(Sokoban puzzle) {
+		this((puzzle == null) ? null : puzzle.toBitBoard());
+	}
+
+	/**
+	 * Construct an engine for a board
+	 *
+	 * @param start the position to play out from (cannot be null)
+	 */
+	public PlayoutEngine(BitBoard start) {
+		if (start == null)
+			throw new IllegalArgumentException("start cannot be null");
+		this.start         = start.copy();
+		this.startSnapshot = start.snapshot();
+	}
+
+	/**
+	 * Sets the policy used to choose moves.  Players are not shared between threads, so
+	 * the policy is a factory that makes one player for each task.
+	 *
+	 * @param policy makes the players (or null to choose uniformly at random)
+	 */
+	public void setPolicy(Supplier<Player> policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Sets the most moves in a playout
+	 *
+	 * @param maxLength the maximum length (must be positive)
+	 */
+	public void setMaxLength(int maxLength) {
+		if (maxLength <= 0)
+			throw new IllegalArgumentException("max length must be positive");
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Sets the seed for the random choices, so runs can be repeated
+	 *
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Run playouts from the starting position on the common fork/join pool
+	 *
+	 * @param playouts the number of playouts (cannot be negative)
+	 * @return the statistics of the playouts
+	 */
+	public PlayoutStats run(long playouts) {
+		return run(playouts, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Run playouts from the starting position on a fork/join pool
+	 *
+	 * @param playouts the number of playouts (cannot be negative)
+	 * @param pool the pool (cannot be null)
+	 * @return the statistics of the playouts
+	 */
+	public PlayoutStats run(long playouts, ForkJoinPool pool) {
+		if (playouts < 0)
+			throw new IllegalArgumentException("playouts cannot be negative");
+		if (pool == null)
+			throw new IllegalArgumentException("pool cannot be null");
+		return pool.invoke(new PlayoutTask(this, 0, playouts));
+	}
+
+	/**
+	 * Play out one game from a board's current position
+	 *
+	 * @param board the board, which is left at the end of the playout
+	 * @param random the random numbers for uniform choices
+	 * @param player the policy (or null to choose uniformly at random)
+	 * @param choices a vector to reuse for the player's choices (ignored without a player)
+	 * @param deadlocks a detector for the board's layout, not shared with another thread
+	 * @param stats the statistics to record the playout in (or null)
+	 * @return the most boxes on targets at any point in the playout, or DEADLOCKED if a
+	 *         push deadlocked the puzzle
+	 */
+	int playout(BitBoard board, SplittableRandom random, Player player, Vector<Direction> choices, DeadlockDetector deadlocks,
+	            PlayoutStats stats) {
+		Direction[] moves      = new Direction[DIRECTIONS.length];
+		int         best       = board.numOnTarget();
+		int         length     = 0;
+		boolean     stuck      = false;
+		boolean     deadlocked = false;
+		while (!board.onTarget() && (length < maxLength)) {
+			int num = 0;
+			for (Direction dir : DIRECTIONS)
+				if (board.canMove(dir))
+					moves[num++] = dir;
+			if (num == 0) {
+				stuck = true;
+				break;
+			}
+			Direction dir;
+			if (player == null)
+				dir = moves[random.nextInt(num)];
+			else {
+				choices.clear();
+				for (int i=0; i<num; i++)
+					choices.add(moves[i]);
+				dir = player.move(choices);
+			}
+			length++;
+			if (board.move(dir)) {
+				if (board.numOnTarget() > best)
+					best = board.numOnTarget();
+				int box = board.getLayout().neighbour(board.getActor(), dir);
+				if (!board.onTarget() && deadlocks.isDeadlocked(board.boxes(), box, dir)) {
+					deadlocked = true;
+					break;
+				}
+			}
+		}
+		if (stats != null)
+			stats.record(length, best, board.onTarget(), stuck, deadlocked);
+		return deadlocked ? DEADLOCKED : best;
+	}
+
+	/**
+	 * Gets the starting position (shared, so must not be changed)
+	 *
+	 * @return the starting board
+	 */
+	BitBoard getStart() {
+		return start;
+	}
+
+	/**
+	 * Gets a snapshot of the starting position
+	 *
+	 * @return the starting snapshot
+	 */
+	Snapshot getStartSnapshot() {
+		return startSnapshot;
+	}
+
+	/**
+	 * Gets the seed for the random choices
+	 *
+	 * @return the seed
+	 */
+	long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Make a deadlock detector for one task (detectors keep scratch state, so are not
+	 * shared between threads)
+	 *
+	 * @return the detector
+	 */
+	DeadlockDetector newDetector() {
+		return new DeadlockDetector(start.getLayout());
+	}
+
+	/**
+	 * Make a player from the policy for one task
+	 *
+	 * @return the player (or null to choose uniformly at random)
+	 */
+	Player newPlayer() {
+		return (policy == null) ? null : policy.get();
+	}
+
+	/**
+	 * Run playouts on a screen file: java PlayoutEngine screens/screen.1 [playouts] [max length]
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("usage: java PlayoutEngine <screen file> [playouts] [max length]");
+			return;
+		}
+		PlayoutEngine engine   = new PlayoutEngine(new Sokoban(new File(args[0]), true));
+		long          playouts = (args.length > 1) ? Long.parseLong(args[1]) : 100000;
+		if (args.length > 2)
+			engine.setMaxLength(Integer.parseInt(args[2]));
+		long         start = System.nanoTime();
+		PlayoutStats stats = engine.run(playouts);
+		long         nanos = System.nanoTime()-start;
+		System.out.println(args[0]+": "+stats);
+		System.out.printf("%d ms, %.0f playouts/s, %.0f moves/s on %d threads%n", nanos/1000000L, stats.getPlayouts()*1.0e9/nanos,
+			stats.getTotalLength()*1.0e9/nanos, ForkJoinPool.commonPool().getParallelism());
+	}
+
+	private final BitBoard   start;
+	private final Snapshot   startSnapshot;
+	private Supplier<Player> policy    = null;
+	private int              maxLength = 1000;
+	private long             seed      = 1;
+
+	static final int                 DEADLOCKED = -1; // what playout returns when a push deadlocks the puzzle
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
@@ -0,0 +1,166 @@
+
+/**
+ * Statistics gathered over a number of Monte-Carlo playouts: how many solved the puzzle,
+ * how many a push deadlocked, how many ended with the actor stuck, how long they were and the most boxes on targets
+ * any of them reached.  Each task of a PlayoutEngine gathers its own statistics, which
+ * are merged once the tasks finish, so a PlayoutStats is never shared between threads.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class PlayoutStats {
+	/**
+	 * Default constructor (no playouts yet)
+	 */
+	public PlayoutStats() {
+	}
+
+	/**
+	 * Record one playout
+	 *
+	 * @param length the number of moves made
+	 * @param onTarget the most boxes on targets at any point in the playout
+	 * @param solved did the playout solve the puzzle?
+	 * @param stuck did the playout end with no legal move?
+	 * @param deadlocked did the playout end with a push that deadlocked the puzzle?
+	 */
+	public void record(int length, int onTarget, boolean solved, boolean stuck, boolean deadlocked) {
+		if ((length < 0) || (onTarget < 0))
+			throw new IllegalArgumentException("invalid playout "+length+"/"+onTarget);
+		playouts++;
+		totalLength += length;
+		if (solved)
+			numSolved++;
+		if (stuck)
+			numStuck++;
+		if (deadlocked)
+			numDeadlocked++;
+		if (onTarget > bestOnTarget)
+			bestOnTarget = onTarget;
+	}
+
+	/**
+	 * Add in the statistics of other playouts
+	 *
+	 * @param other the other statistics (cannot be null)
+	 */
+	public void merge(PlayoutStats other) {
+		if (other == null)
+			throw new IllegalArgumentException("other cannot be null");
+		playouts      += other.playouts;
+		totalLength   += other.totalLength;
+		numSolved     += other.numSolved;
+		numStuck      += other.numStuck;
+		numDeadlocked += other.numDeadlocked;
+		if (other.bestOnTarget > bestOnTarget)
+			bestOnTarget = other.bestOnTarget;
+	}
+
+	/**
+	 * Gets the number of playouts
+	 *
+	 * @return the number of playouts
+	 */
+	public long getPlayouts() {
+		return playouts;
+	}
+
+	/**
+	 * Gets the number of playouts that solved the puzzle
+	 *
+	 * @return the number solved
+	 */
+	public long getSolved() {
+		return numSolved;
+	}
+
+	/**
+	 * Gets the number of playouts that ended with no legal move
+	 *
+	 * @return the number stuck
+	 */
+	public long getStuck() {
+		return numStuck;
+	}
+
+	/**
+	 * Gets the number of playouts ended by a push that deadlocked the puzzle
+	 *
+	 * @return the number deadlocked
+	 */
+	public long getDeadlocked() {
+		return numDeadlocked;
+	}
+
+	/**
+	 * Gets the total number of moves made over all the playouts
+	 *
+	 * @return the total length
+	 */
+	public long getTotalLength() {
+		return totalLength;
+	}
+
+	/**
+	 * Gets the most boxes on targets reached by any playout
+	 *
+	 * @return the best number of boxes on targets
+	 */
+	public int getBestOnTarget() {
+		return bestOnTarget;
+	}
+
+	/**
+	 * Gets the fraction of playouts that solved the puzzle
+	 *
+	 * @return the solve rate (0 if there were no playouts)
+	 */
+	public double getSolveRate() {
+		return (playouts == 0) ? 0.0 : numSolved/(double) playouts;
+	}
+
+	/**
+	 * Gets the fraction of playouts ended by a push that deadlocked the puzzle
+	 *
+	 * @return the deadlock rate (0 if there were no playouts)
+	 */
+	public double getDeadlockRate() {
+		return (playouts == 0) ? 0.0 : numDeadlocked/(double) playouts;
+	}
+
+	/**
+	 * Gets the fraction of playouts that ended with no legal move
+	 *
+	 * @return the stuck rate (0 if there were no playouts)
+	 */
+	public double getStuckRate() {
+		return (playouts == 0) ? 0.0 : numStuck/(double) playouts;
+	}
+
+	/**
+	 * Gets the average number of moves in a playout
+	 *
+	 * @return the average length (0 if there were no playouts)
+	 */
+	public double getAverageLength() {
+		return (playouts == 0) ? 0.0 : totalLength/(double) playouts;
+	}
+
+	/**
+	 * A String representation of the statistics
+	 *
+	 * @return the String representation
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d playouts, %d solved, best %d on target, deadlock rate %.3f, stuck rate %.3f, average length %.1f",
+			playouts, numSolved, bestOnTarget, getDeadlockRate(), getStuckRate(), getAverageLength());
+	}
+
+	private long playouts      = 0;
+	private long numSolved     = 0;
+	private long numStuck      = 0;
+	private long numDeadlocked = 0;
+	private long totalLength   = 0;
+	private int  bestOnTarget  = 0;
+}
@@ -0,0 +1,65 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A fork/join task running a range of a PlayoutEngine's playouts.  Large ranges are
+ * split in half; small ones are played on the task's own copy of the starting board with
+ * its own random numbers, seeded from the range so the results do not depend on how the
+ * pool schedules the tasks.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+class PlayoutTask extends RecursiveTask<PlayoutStats> {
+	/**
+	 * Constructor
+	 *
+	 * @param engine the engine whose playouts to run (cannot be null)
+	 * @param from the first playout number
+	 * @param to one past the last playout number
+	 */
+	PlayoutTask(PlayoutEngine engine, long from, long to) {
+		if (engine == null)
+			throw new IllegalArgumentException("engine cannot be null");
+		if ((from < 0) || (to < from))
+			throw new IllegalArgumentException("invalid range "+from+".."+to);
+		this.engine = engine;
+		this.from   = from;
+		this.to     = to;
+	}
+
+	/**
+	 * Run the playouts, splitting the range if it is large
+	 *
+	 * @return the statistics of the playouts
+	 */
+	@Override
+	protected PlayoutStats compute() {
+		if (to-from <= LEAF) {
+			PlayoutStats      stats     = new PlayoutStats();
+			BitBoard          board     = engine.getStart().copy();
+			SplittableRandom  random    = new SplittableRandom(engine.getSeed() ^ (from*0x9E3779B97F4A7C15L));
+			Player            player    = engine.newPlayer();
+			DeadlockDetector  deadlocks = engine.newDetector();
+			Vector<Direction> choices   = new Vector<>(4);
+			for (long i=from; i<to; i++) {
+				board.restore(engine.getStartSnapshot());
+				engine.playout(board, random, player, choices, deadlocks, stats);
+			}
+			return stats;
+		}
+		long        mid   = from+(to-from)/2;
+		PlayoutTask right = new PlayoutTask(engine, mid, to);
+		right.fork();
+		PlayoutStats stats = new PlayoutTask(engine, from, mid).compute();
+		stats.merge(right.join());
+		return stats;
+	}
+
+	private final PlayoutEngine engine;
+	private final long          from;
+	private final long          to;
+
+	private static final int  LEAF             = 64; // playouts run by one task without splitting
+	private static final long serialVersionUID = 1L;
+}
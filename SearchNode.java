@@ -0,0 +1,187 @@
+import java.util.*;
+
+/**
+ * A node in a solver's search over box configurations: the boxes, the actor normalized to
+ * the lowest numbered square of its reachable region, and the push that led here.
+ * Two nodes are equal when their boxes and normalized actor squares are equal.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class SearchNode {
+	/**
+	 * Constructor
+	 *
+	 * @param boxes the box bitset (not copied, so must not be changed afterwards)
+	 * @param actor the normalized actor square
+	 * @param hash the normalized Zobrist hash of the position
+	 * @param parent the node this one was reached from (null for the start)
+	 * @param box the square the pushed box was pushed from (ignored for the start)
+	 * @param dir the direction of the push (null for the start)
+	 * @param pushes the number of pushes from the start
+	 */
+	public SearchNode(long[] boxes, int actor, long hash, SearchNode parent, int box, Direction dir, int pushes) {
+		if (boxes == null)
+			throw new IllegalArgumentException("boxes cannot be null");
+		this.boxes  = boxes;
+		this.actor  = actor;
+		this.hash   = hash;
+		this.parent = parent;
+		this.box    = box;
+		this.dir    = dir;
+		this.pushes = pushes;
+	}
+
+	/**
+	 * Gets the box bitset (shared, so must not be changed)
+	 *
+	 * @return the box bitset
+	 */
+	public long[] getBoxes() {
+		return boxes;
+	}
+
+	/**
+	 * Gets the normalized actor square
+	 *
+	 * @return the normalized actor square
+	 */
+	public int getActor() {
+		return actor;
+	}
+
+	/**
+	 * Gets the normalized Zobrist hash
+	 *
+	 * @return the normalized hash
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Gets the node this one was reached from
+	 *
+	 * @return the parent node (null for the start)
+	 */
+	public SearchNode getParent() {
+		return parent;
+	}
+
+	/**
+	 * Gets the square the pushed box was pushed from
+	 *
+	 * @return the square index
+	 */
+	public int getBox() {
+		return box;
+	}
+
+	/**
+	 * Gets the direction of the push that led here
+	 *
+	 * @return the direction (null for the start)
+	 */
+	public Direction getDir() {
+		return dir;
+	}
+
+	/**
+	 * Gets the pushes of a macro push that led here (see MacroGenerator)
+	 *
+	 * @return the directions of the pushes, the first being getDir() (or null for a single push)
+	 */
+	public Direction[] getMacro() {
+		return macro;
+	}
+
+	/**
+	 * Sets the pushes of a macro push that led here
+	 *
+	 * @param macro the directions of the pushes, the first being getDir()
+	 */
+	public void setMacro(Direction[] macro) {
+		this.macro = macro;
+	}
+
+	/**
+	 * Gets the number of pushes from the start
+	 *
+	 * @return the number of pushes
+	 */
+	public int getPushes() {
+		return pushes;
+	}
+
+	/**
+	 * Gets the heuristic estimate of the pushes still needed
+	 *
+	 * @return the estimate
+	 */
+	public int getEstimate() {
+		return estimate;
+	}
+
+	/**
+	 * Sets the heuristic estimate of the pushes still needed
+	 *
+	 * @param estimate the estimate
+	 */
+	public void setEstimate(int estimate) {
+		this.estimate = estimate;
+	}
+
+	/**
+	 * Gets the matching of boxes to targets the estimate came from, so expanding this node
+	 * does not solve it again (see MatchingHeuristic.pushedMatching)
+	 *
+	 * @return the matching (or null if there is none)
+	 */
+	public int[] getMatching() {
+		return matching;
+	}
+
+	/**
+	 * Sets the matching of boxes to targets the estimate came from
+	 *
+	 * @param matching the matching (or null to drop it once this node is expanded)
+	 */
+	public void setMatching(int[] matching) {
+		this.matching = matching;
+	}
+
+	/**
+	 * Test for equality with another node, considering boxes and normalized actor only
+	 *
+	 * @param obj the other node
+	 * @return do the two nodes have the same boxes and normalized actor?
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if ((obj == null) || !(obj instanceof SearchNode))
+			return false;
+		SearchNode other = (SearchNode) obj;
+		return (hash == other.hash) && (actor == other.actor) && Arrays.equals(boxes, other.boxes);
+	}
+
+	/**
+	 * A hash code consistent with equals
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private final long[]     boxes;
+	private final int        actor;
+	private final long       hash;
+	private final SearchNode parent;
+	private final int        box;
+	private final Direction  dir;
+	private final int        pushes;
+	private int              estimate = 0;
+	private Direction[]      macro    = null;
+	private int[]            matching = null;
+}
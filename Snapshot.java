@@ -0,0 +1,122 @@
+import java.util.*;
+
+/**
+ * A compact, immutable record of the moving parts of a Sokoban puzzle: the actor's square
+ * and the boxes' squares in ascending order (squares are numbered row*numCols+col).
+ * The walls and targets are not copied: a snapshot shares the static Layout of the
+ * puzzle it was taken from, so taking one costs a single small array, and it can be
+ * restored into any puzzle or BitBoard with an equal layout.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class Snapshot {
+	/**
+	 * Constructor
+	 *
+	 * @param layout the static layout (cannot be null)
+	 * @param actor the actor square
+	 * @param boxes the box squares in ascending order (not copied, so must not be changed afterwards)
+	 */
+	Snapshot(Layout layout, int actor, int[] boxes) {
+		if (layout == null)
+			throw new IllegalArgumentException("layout cannot be null");
+		if (boxes == null)
+			throw new IllegalArgumentException("boxes cannot be null");
+		this.layout = layout;
+		this.actor  = actor;
+		this.boxes  = boxes;
+	}
+
+	/**
+	 * Build a snapshot from a box bitset
+	 *
+	 * @param layout the static layout
+	 * @param actor the actor square
+	 * @param bits the box bitset
+	 * @return the snapshot
+	 */
+	static Snapshot fromBits(Layout layout, int actor, long[] bits) {
+		int[] boxes = new int[Layout.count(bits)];
+		int   n     = 0;
+		for (int i=0; i<bits.length; i++)
+			for (long word=bits[i]; word != 0; word &= word-1)
+				boxes[n++] = (i << 6)+Long.numberOfTrailingZeros(word);
+		return new Snapshot(layout, actor, boxes);
+	}
+
+	/**
+	 * Gets the static layout the snapshot belongs to (shared, not copied)
+	 *
+	 * @return the layout
+	 */
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Gets the actor square
+	 *
+	 * @return the actor square
+	 */
+	public int getActor() {
+		return actor;
+	}
+
+	/**
+	 * Gets the number of boxes
+	 *
+	 * @return the number of boxes
+	 */
+	public int numBoxes() {
+		return boxes.length;
+	}
+
+	/**
+	 * Gets the square of a box (boxes are in ascending order of square)
+	 *
+	 * @param i which box (from 0)
+	 * @return the box square
+	 */
+	public int getBox(int i) {
+		return boxes[i];
+	}
+
+	/**
+	 * Checks if a square holds a box
+	 *
+	 * @param idx the square index
+	 * @return does the square hold a box?
+	 */
+	public boolean hasBox(int idx) {
+		return Arrays.binarySearch(boxes, idx) >= 0;
+	}
+
+	/**
+	 * Test for equality with another snapshot
+	 *
+	 * @param obj the other snapshot
+	 * @return do the two snapshots have the same layout, actor and boxes?
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if ((obj == null) || !(obj instanceof Snapshot))
+			return false;
+		Snapshot other = (Snapshot) obj;
+		return (actor == other.actor) && Arrays.equals(boxes, other.boxes) && layout.equals(other.layout);
+	}
+
+	/**
+	 * A hash code consistent with equals
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return 31*actor+Arrays.hashCode(boxes);
+	}
+
+	private final Layout layout;
+	private final int    actor;
+	private final int[]  boxes;
+}
@@ -19,29 +19,53 @@ public class Sokoban extends Observable {
         this(fileAsString(file));
     }
 
+    /**
+     * Construct a Sokoban puzzle from a standard Sokoban screen file, choosing the backend
+     * 
+     * @param file the file
+     * @param useBitBoard should the puzzle be held as a BitBoard rather than a grid of Cells?
+     */
+    public Sokoban(File file, boolean useBitBoard) {
+        this(fileAsString(file), useBitBoard);
+    }
+
     /**
      * Construct a Sokoban puzzle from a standard Sokoban screen file passed as a String
      * 
      * @param screen the screen file as a String
      */
     public Sokoban(String screen) {
+        this(screen, false);
+    }
+
+    /**
+     * Construct a Sokoban puzzle from a standard Sokoban screen file passed as a String,
+     * choosing the backend.  The Cell backend notifies observers of every changed cell (as
+     * the user interfaces need); the BitBoard backend has no Cells or notifications but
+     * every move is a handful of bit operations (as solvers and bulk replay need).
+     * 
+     * @param screen the screen file as a String
+     * @param useBitBoard should the puzzle be held as a BitBoard rather than a grid of Cells?
+     */
+    public Sokoban(String screen, boolean useBitBoard) {
         if (screen == null)
             throw new IllegalArgumentException("screen cannot be null");
-        startScreen            = screen;
-        Scanner           scnr = null;
-        ArrayList<String> lines = new ArrayList<>();
-        scnr = new Scanner(screen);
-        while (scnr.hasNextLine()) {
-            String line = scnr.nextLine();
-            if (line.length() > 0) {
-                lines.add(line);
-                numRows++;
-                if (line.length() > numCols)
-                    numCols = line.length();
-            }
+        if (useBitBoard) {
+            board   = new BitBoard(screen);
+            layout  = board.getLayout();
+            numRows = layout.getNumRows();
+            numCols = layout.getNumCols();
+            initial = board.snapshot();
+            return;
         }
-        scnr.close();
+        ArrayList<String> lines = screenLines(screen);
+        numRows = lines.size();
+        for (String line : lines)
+            if (line.length() > numCols)
+                numCols = line.length();
         cells = new Cell[numRows][numCols];
+        long[] walls   = new long[Layout.words(numRows*numCols)];
+        long[] targets = new long[Layout.words(numRows*numCols)];
         for (int row=0; row<numRows; row++) {
             String line = lines.get(row);
             for (int col=0; col<numCols; col++) {
@@ -49,9 +73,16 @@ public class Sokoban extends Observable {
                 cells[row][col] = new Cell(display, this, row, col);
                 if (display == ACTOR || display == TARGET_ACTOR)
                     actorCell = cells[row][col];
+                if (cells[row][col].hasWall())
+                    Layout.set(walls, row*numCols+col);
+                if (cells[row][col].isTarget())
+                    Layout.set(targets, row*numCols+col);
             }
         }
+        layout  = new Layout(numRows, numCols, walls, targets);
+        computeBoxes();
         checkValid();
+        initial = snapshot();
     }
 
     /**
@@ -64,33 +95,225 @@ public class Sokoban extends Observable {
     }
 
     /**
-     * Reset to the starting state
+     * Reset to the starting state (the same as reset)
      */
     public void clear() {
-        if (startScreen == null)
-            throw new IllegalStateException("startScreen cannot be null");
-        Scanner           scnr = null;
-        ArrayList<String> lines = new ArrayList<>();
-        scnr = new Scanner(startScreen);
-        while (scnr.hasNextLine()) {
-            String line = scnr.nextLine();
-            if (line.length() > 0)
-                lines.add(line);
+        reset();
+    }
+
+    /**
+     * Reset to the starting state.  The starting state is kept as a compact snapshot, so
+     * nothing is re-parsed: only the cells that differ are changed (their occupants are
+     * moved back rather than re-created) and only those cells are notified to listeners.
+     */
+    public void reset() {
+        history.clear();
+        historySize = 0;
+        restoreState(initial);
+    }
+
+    /**
+     * A snapshot of the current state: the actor's square and the boxes' squares, sharing
+     * the static layout rather than copying it
+     * 
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        if (board != null)
+            return board.snapshot();
+        return Snapshot.fromBits(layout, actorIndex(), boxBits);
+    }
+
+    /**
+     * Restore a state from a snapshot taken of this puzzle (or of any puzzle with the same
+     * walls and targets).  Only the cells that differ are changed and notified to listeners.
+     * The moves made so far no longer lead to the restored state, so they are forgotten
+     * and cannot be undone.
+     * 
+     * @param snapshot the snapshot (cannot be null)
+     */
+    public void restore(Snapshot snapshot) {
+        if (snapshot == null)
+            throw new IllegalArgumentException("snapshot cannot be null");
+        if (!layout.equals(snapshot.getLayout()))
+            throw new IllegalArgumentException("snapshot is from a different puzzle");
+        history.clear();
+        historySize = 0;
+        restoreState(snapshot);
+    }
+
+    /**
+     * Change the actor and boxes to match a snapshot, telling listeners about the squares
+     * that changed
+     * 
+     * @param target the snapshot to match
+     */
+    private void restoreState(Snapshot target) {
+        if (board != null) {
+            if (!listeners.isEmpty()) {
+                Snapshot before = board.snapshot();
+                if (before.getActor() != target.getActor()) {
+                    markDirty(before.getActor());
+                    markDirty(target.getActor());
+                }
+                for (int i=0; i<before.numBoxes(); i++)
+                    if (!target.hasBox(before.getBox(i)))
+                        markDirty(before.getBox(i));
+                for (int i=0; i<target.numBoxes(); i++)
+                    if (!before.hasBox(target.getBox(i)))
+                        markDirty(target.getBox(i));
+            }
+            board.restore(target);
+            fireChanged();
+            return;
         }
-        scnr.close();
-        for (int row=0; row<numRows; row++) {
-            String line = lines.get(row);
-            for (int col=0; col<numCols; col++) {
-                char display = (col < line.length()) ? line.charAt(col) : Sokoban.EMPTY;
-                if (cells[row][col].getDisplay() != display) {
-                    cells[row][col].setDisplay(display);
-                    if (display == ACTOR || display == TARGET_ACTOR)
-                        actorCell = cells[row][col];
-                    trace("clear: changing display in ("+row+","+col+")");
+        long[]     changed = new long[boxBits.length];
+        Occupant[] spare   = new Occupant[numBoxesCount];
+        int        nSpare  = 0;
+        Occupant   actor   = actorCell.getOccupant();
+        // lift the actor and any misplaced boxes off the grid ...
+        if (actorCell.index() != target.getActor()) {
+            actorCell.setOccupant(null);
+            Layout.set(changed, actorCell.index());
+        }
+        for (int i=0; i<boxBits.length; i++) {
+            for (long word=boxBits[i]; word != 0; word &= word-1) {
+                int idx = (i << 6)+Long.numberOfTrailingZeros(word);
+                if (!target.hasBox(idx)) {
+                    Cell cell = cells[idx/numCols][idx%numCols];
+                    spare[nSpare++] = cell.getOccupant();
+                    cell.setOccupant(null);
+                    Layout.clear(boxBits, idx);
+                    Layout.set(changed, idx);
+                    boxHash ^= layout.boxKey(idx);
                 }
             }
         }
+        // ... and put them back where they belong
+        for (int i=0; i<target.numBoxes(); i++) {
+            int idx = target.getBox(i);
+            if (!Layout.test(boxBits, idx)) {
+                cells[idx/numCols][idx%numCols].setOccupant(spare[--nSpare]);
+                Layout.set(boxBits, idx);
+                Layout.set(changed, idx);
+                boxHash ^= layout.boxKey(idx);
+            }
+        }
+        actorCell = cells[target.getActor()/numCols][target.getActor()%numCols];
+        if (!actorCell.hasActor()) {
+            actorCell.setOccupant(actor);
+            Layout.set(changed, actorCell.index());
+        }
         checkValid();
+        for (int i=0; i<changed.length; i++) {
+            for (long word=changed[i]; word != 0; word &= word-1) {
+                int idx = (i << 6)+Long.numberOfTrailingZeros(word);
+                cellChanged(cells[idx/numCols][idx%numCols]);
+            }
+        }
+        fireChanged();
+    }
+
+    /**
+     * Add a listener, to be told once about each move or batch of moves
+     * 
+     * @param listener the listener (cannot be null)
+     */
+    public void addListener(SokobanListener listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("listener cannot be null");
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener
+     * 
+     * @param listener the listener
+     */
+    public void removeListener(SokobanListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start a batch of changes: listeners hear nothing until the matching endUpdate,
+     * then a single event with every square changed in between.  Batches can be nested.
+     */
+    public void beginUpdate() {
+        updateDepth++;
+    }
+
+    /**
+     * End a batch of changes started by beginUpdate
+     */
+    public void endUpdate() {
+        if (updateDepth == 0)
+            throw new IllegalStateException("endUpdate without beginUpdate");
+        updateDepth--;
+        fireChanged();
+    }
+
+    /**
+     * A cell has changed: tell any observers now, and remember it for the listeners
+     * 
+     * @param cell the changed cell
+     */
+    private void cellChanged(Cell cell) {
+        markDirty(cell.index());
+        if (countObservers() > 0) {
+            setChanged();
+            notifyObservers(cell);
+        }
+    }
+
+    /**
+     * Remember a changed square for the listeners (if there are any)
+     * 
+     * @param idx the square index
+     */
+    private void markDirty(int idx) {
+        if (listeners.isEmpty())
+            return;
+        if (dirty == null)
+            dirty = new long[Layout.words(numRows*numCols)];
+        Layout.set(dirty, idx);
+    }
+
+    /**
+     * Tell the listeners about the changed squares, unless in the middle of a batch
+     */
+    private void fireChanged() {
+        if ((updateDepth > 0) || (dirty == null) || listeners.isEmpty())
+            return;
+        int   n       = 0;
+        int[] squares = new int[Layout.count(dirty)];
+        if (squares.length == 0)
+            return;
+        for (int i=0; i<dirty.length; i++) {
+            for (long word=dirty[i]; word != 0; word &= word-1)
+                squares[n++] = (i << 6)+Long.numberOfTrailingZeros(word);
+            dirty[i] = 0L;
+        }
+        SokobanEvent event = new SokobanEvent(this, squares);
+        for (SokobanListener listener : listeners)
+            listener.puzzleChanged(event);
+    }
+
+    /**
+     * Is this puzzle held as a BitBoard rather than a grid of Cells?
+     * 
+     * @return is this puzzle held as a BitBoard?
+     */
+    public boolean usesBitBoard() {
+        return board != null;
+    }
+
+    /**
+     * Get a BitBoard copy of the current state of the puzzle (for solvers and bulk replay)
+     * 
+     * @return a BitBoard of the current state
+     */
+    public BitBoard toBitBoard() {
+        return (board != null) ? board.copy() : new BitBoard(toString());
     }
 
     /**
@@ -119,11 +342,37 @@ public class Sokoban extends Observable {
      * @return the requested cell
      */
     Cell getCell(int row, int col) {
-        if ((row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
+        if ((cells == null) || (row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
             return null;
         return cells[row][col];
     }
 
+    /**
+     * Is a cell dead: one from which a box could never be pushed to any target?
+     * 
+     * @param row row number (starts from 0)
+     * @param col column number (starts from 0)
+     * @return is the cell dead?
+     */
+    public boolean isDeadSquare(int row, int col) {
+        if ((row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
+            return true;
+        return layout.isDeadSquare(row*numCols+col);
+    }
+
+    /**
+     * Gets the display character of a cell
+     * 
+     * @param row row number (starts from 0)
+     * @param col column number (starts from 0)
+     * @return the character to use for display purposes for the cell
+     */
+    public char getDisplay(int row, int col) {
+        if ((row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
+            throw new IllegalArgumentException("invalid cell ("+row+","+col+")");
+        return (board != null) ? board.getDisplay(row*numCols+col) : cells[row][col].getDisplay();
+    }
+
     /**
      * Get the actor cell from the Sokoban puzzle
      * 
@@ -134,59 +383,54 @@ public class Sokoban extends Observable {
     }
 
     /**
-     * Count the number of targets in the Sokoban puzzle
+     * Count the number of targets in the Sokoban puzzle (kept up to date as the cells change)
      * 
      * @return the number of targets
      */
     public int numTargets() {
-        int num = 0;
-        for (int row=0; row<numRows; row++)
-            for (int col=0; col<numCols; col++)
-                if (cells[row][col].isTarget())
-                    num++;
-        return num;
+        return (board != null) ? board.numTargets() : numTargetsCount;
     }
 
     /**
-     * Count the number of boxes in the Sokoban puzzle
+     * Count the number of boxes in the Sokoban puzzle (kept up to date as the cells change)
      * 
      * @return the number of boxes
      */
     public int numBoxes() {
-        int num = 0;
-        for (int row=0; row<numRows; row++)
-            for (int col=0; col<numCols; col++)
-                if (cells[row][col].hasBox())
-                    num++;
-        return num;
+        return (board != null) ? board.numBoxes() : numBoxesCount;
     }
 
     /**
-     * Count the number of actors in the Sokoban puzzle (should be one)
+     * Count the number of actors in the Sokoban puzzle (should be one, and kept up to date as the cells change)
      * 
      * @return the number of actors
      */
     public int numActors() {
-        int num = 0;
-        for (int row=0; row<numRows; row++)
-            for (int col=0; col<numCols; col++)
-                if (cells[row][col].hasActor())
-                    num++;
-        return num;
+        return (board != null) ? 1 : numActorsCount;
     }
 
     /**
-     * Count the number of boxes on target cells in the Sokoban puzzle
+     * Count the number of boxes on target cells in the Sokoban puzzle (kept up to date as the cells change)
      * 
      * @return the number of boxes on target cells
      */
     public int numOnTarget() {
-        int num = 0;
-        for (int row=0; row<numRows; row++)
-            for (int col=0; col<numCols; col++)
-                if (cells[row][col].onTarget())
-                    num++;
-        return num;
+        return (board != null) ? board.numOnTarget() : numOnTargetCount;
+    }
+
+    /**
+     * Adjust the counts as the contents of a cell change (called by Cell)
+     * 
+     * @param boxes the change in the number of boxes
+     * @param targets the change in the number of targets
+     * @param onTarget the change in the number of boxes on target cells
+     * @param actors the change in the number of actors
+     */
+    void adjustCounts(int boxes, int targets, int onTarget, int actors) {
+        numBoxesCount    += boxes;
+        numTargetsCount  += targets;
+        numOnTargetCount += onTarget;
+        numActorsCount   += actors;
     }
 
     /**
@@ -198,6 +442,192 @@ public class Sokoban extends Observable {
         return numOnTarget() == numTargets();
     }
 
+    /**
+     * A 64-bit Zobrist hash of the position (the boxes and the actor's exact square).
+     * It is maintained incrementally by move, so it costs nothing to ask for.
+     * 
+     * @return the position hash
+     */
+    public long positionHash() {
+        if (board != null)
+            return board.positionHash();
+        return boxHash ^ layout.actorKey(actorIndex());
+    }
+
+    /**
+     * A 64-bit Zobrist hash of the position with the actor normalized to the region it
+     * can reach (positions differing only by where the actor stands in that region hash the same).
+     * 
+     * @return the normalized position hash
+     */
+    public long normalizedHash() {
+        if (board != null)
+            return board.normalizedHash();
+        return boxHash ^ layout.actorKey(minReachable());
+    }
+
+    /**
+     * The Zobrist hash of the boxes alone
+     * 
+     * @return the box hash
+     */
+    long boxHash() {
+        return (board != null) ? board.boxHash() : boxHash;
+    }
+
+    /**
+     * The cache shared by the cells' freeze checks
+     * 
+     * @return the freeze cache (or null if caching is turned off)
+     */
+    FreezeCache freezeCache() {
+        if (!freezeCaching)
+            return null;
+        if (freezeCache == null)
+            freezeCache = new FreezeCache();
+        return freezeCache;
+    }
+
+    /**
+     * Turns the cache of the cells' freeze checks on or off (it is on unless turned off),
+     * so that benchmarks can time the checks themselves rather than cache lookups
+     * 
+     * @param on should freeze checks be cached?
+     */
+    void setFreezeCaching(boolean on) {
+        freezeCaching = on;
+    }
+
+    /**
+     * The scratch visited bitset for the cells' freeze checks, indexed by row*numCols+col
+     * 
+     * @return the visited bitset
+     */
+    long[] freezeVisited() {
+        if (freezeVisited == null)
+            freezeVisited = new long[Layout.words(numRows*numCols)];
+        return freezeVisited;
+    }
+
+    /**
+     * Finds the lowest numbered square the actor can reach without pushing a box
+     * 
+     * @return the lowest square index reachable by the actor
+     */
+    private int minReachable() {
+        if (queue == null) {
+            queue   = new int[layout.numSquares()];
+            reached = new long[Layout.words(layout.numSquares())];
+        }
+        Arrays.fill(reached, 0L);
+        int start = actorIndex();
+        int min   = start;
+        int head  = 0;
+        int tail  = 0;
+        queue[tail++] = start;
+        Layout.set(reached, start);
+        while (head < tail) {
+            int idx = queue[head++];
+            if (idx < min)
+                min = idx;
+            for (Direction dir : DIRECTIONS) {
+                int next = layout.neighbour(idx, dir);
+                if (!layout.isWall(next) && !Layout.test(reached, next) && !cells[next/numCols][next%numCols].hasBox()) {
+                    Layout.set(reached, next);
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return min;
+    }
+
+    /**
+     * The shortest walk for the actor to a square, pushing no box on the way.  The search
+     * reuses arrays stamped with a generation number, so it allocates nothing but the walk.
+     * 
+     * @param row row number (starts from 0)
+     * @param col column number (starts from 0)
+     * @return the moves (empty if the actor is already there, null if it cannot get there)
+     */
+    public List<Direction> pathTo(int row, int col) {
+        if ((row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
+            throw new IllegalArgumentException("invalid cell ("+row+","+col+")");
+        if (pathStamp == null) {
+            pathStamp = new int[layout.numSquares()];
+            pathPrev  = new int[layout.numSquares()];
+            pathQueue = new int[layout.numSquares()];
+        }
+        if (++pathGeneration == 0) { // the stamps have wrapped, so old ones could be mistaken for new
+            Arrays.fill(pathStamp, 0);
+            pathGeneration = 1;
+        }
+        int start = (board != null) ? board.getActor() : actorIndex();
+        int goal  = row*numCols+col;
+        int head  = 0;
+        int tail  = 0;
+        pathQueue[tail++] = start;
+        pathStamp[start]  = pathGeneration;
+        while ((head < tail) && (pathStamp[goal] != pathGeneration)) {
+            int idx = pathQueue[head++];
+            for (Direction dir : DIRECTIONS) {
+                int next = layout.neighbour(idx, dir);
+                if (layout.isWall(next) || (pathStamp[next] == pathGeneration) ||
+                    ((board != null) ? board.hasBox(next) : Layout.test(boxBits, next)))
+                    continue;
+                pathStamp[next]   = pathGeneration;
+                pathPrev[next]    = idx;
+                pathQueue[tail++] = next;
+            }
+        }
+        if (pathStamp[goal] != pathGeneration)
+            return null;
+        LinkedList<Direction> path = new LinkedList<>();
+        for (int idx=goal; idx != start; idx=pathPrev[idx]) {
+            for (Direction dir : DIRECTIONS) {
+                if (layout.neighbour(pathPrev[idx], dir) == idx)
+                    path.addFirst(dir);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Gets the square index of the actor (row*numCols+col)
+     * 
+     * @return the actor square index
+     */
+    private int actorIndex() {
+        return actorCell.getRow()*numCols+actorCell.getCol();
+    }
+
+    /**
+     * Computes the box bitset and the Zobrist hash of the boxes from scratch
+     */
+    private void computeBoxes() {
+        boxBits = new long[Layout.words(numRows*numCols)];
+        boxHash = 0L;
+        for (int row=0; row<numRows; row++) {
+            for (int col=0; col<numCols; col++) {
+                if (cells[row][col].hasBox()) {
+                    Layout.set(boxBits, row*numCols+col);
+                    boxHash ^= layout.boxKey(row*numCols+col);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move a box in the box bitset and hash (the Cells move the box itself)
+     * 
+     * @param from the square the box moved from
+     * @param to the square the box moved to
+     */
+    private void moveBox(int from, int to) {
+        Layout.clear(boxBits, from);
+        Layout.set(boxBits, to);
+        boxHash ^= layout.boxKey(from) ^ layout.boxKey(to);
+    }
+
     /**
      * Checks if the actor can move to the next cell in a given direction
      * 
@@ -205,6 +635,8 @@ public class Sokoban extends Observable {
      * @return can the actor move to the next cell in a given direction?
      */
     public boolean canMove(Direction dir) {
+        if (board != null)
+            return board.canMove(dir);
         return actorCell.canMove(dir);
     }
 
@@ -230,20 +662,148 @@ public class Sokoban extends Observable {
     public void move(Direction dir) {
         if (!canMove(dir))
             throw new IllegalArgumentException("cannot move "+dir);
+        boolean pushed = makeMove(dir);
+        // a new move replaces anything that could have been redone
+        while (history.size() > historySize)
+            history.remove(history.size()-1);
+        history.add(Move.of(dir, pushed));
+        historySize++;
+        fireChanged();
+    }
+
+    /**
+     * Can the last move be undone?
+     * 
+     * @return can the last move be undone?
+     */
+    public boolean canUndo() {
+        return historySize > 0;
+    }
+
+    /**
+     * Can an undone move be redone?
+     * 
+     * @return can an undone move be redone?
+     */
+    public boolean canRedo() {
+        return historySize < history.size();
+    }
+
+    /**
+     * Undo the last move (in constant time, by reversing it)
+     */
+    public void undo() {
+        if (!canUndo())
+            throw new IllegalStateException("no move to undo");
+        historySize--;
+        Move last = history.get(historySize);
+        if (board != null) {
+            if (!listeners.isEmpty()) {
+                int actor = board.getActor();
+                markDirty(actor);
+                markDirty(layout.neighbour(actor, last.getDir().reverse()));
+                if (last.isPush())
+                    markDirty(layout.neighbour(actor, last.getDir()));
+            }
+            board.unmove(last.getDir(), last.isPush());
+            fireChanged();
+            return;
+        }
+        Direction dir      = last.getDir();
+        Cell      from     = actorCell;
+        Cell      previous = from.getCell(dir.reverse());
+        Cell      box      = from.getCell(dir);
+        previous.setOccupant(from.getOccupant());
+        if (last.isPush()) {
+            from.setOccupant(box.getOccupant());
+            box.setOccupant(null);
+            moveBox(box.index(), from.index());
+        } else
+            from.setOccupant(null);
+        actorCell = previous;
+        cellChanged(from);     // where actor was
+        cellChanged(previous); // where actor is now
+        if (last.isPush())
+            cellChanged(box);  // from where box was pulled
+        fireChanged();
+    }
+
+    /**
+     * Redo the last undone move
+     */
+    public void redo() {
+        if (!canRedo())
+            throw new IllegalStateException("no move to redo");
+        Direction dir = history.get(historySize).getDir();
+        if (!canMove(dir))
+            throw new IllegalStateException("cannot redo "+dir);
+        makeMove(dir);
+        historySize++;
+        fireChanged();
+    }
+
+    /**
+     * The moves made since the start (not including any that have been undone)
+     * 
+     * @return the directions moved, oldest first
+     */
+    public List<Direction> getMoves() {
+        ArrayList<Direction> moves = new ArrayList<>(historySize);
+        for (int i=0; i<historySize; i++)
+            moves.add(history.get(i).getDir());
+        return moves;
+    }
+
+    /**
+     * The number of pushes made since the start (not including any that have been undone)
+     * 
+     * @return the number of moves that pushed a box
+     */
+    public int numPushes() {
+        int pushes = 0;
+        for (int i=0; i<historySize; i++) {
+            if (history.get(i).isPush())
+                pushes++;
+        }
+        return pushes;
+    }
+
+    /**
+     * Move the actor to the next cell in a given direction, which must be safe
+     * 
+     * @param dir the direction to move
+     * @return was a box pushed?
+     */
+    private boolean makeMove(Direction dir) {
+        if (board != null) {
+            int     from   = board.getActor();
+            boolean pushed = board.move(dir);
+            if (!listeners.isEmpty()) {
+                markDirty(from);
+                markDirty(board.getActor());
+                if (pushed)
+                    markDirty(layout.neighbour(board.getActor(), dir));
+            }
+            return pushed;
+        }
         Cell oldActorCell = actorCell;
+        Cell pushed       = actorCell.getCell(dir);
+        boolean hasBox    = pushed.hasBox();
+        // the cells check the move again against the box hash of the grid they see, so the
+        // hash and bitset follow the cells rather than lead them (the checks then hit the
+        // freeze cache entries left by canMove)
         actorCell.move(dir);
+        if (hasBox)
+            moveBox(pushed.index(), pushed.getCell(dir).index());
         actorCell = actorCell.getCell(dir);
         Cell next = actorCell.getCell(dir);
         if (!actorCell.hasActor())
             throw new IllegalStateException("actorCell must have Actor");
-        setChanged();
-        notifyObservers(oldActorCell); // where actor was
-        setChanged();
-        notifyObservers(actorCell);    // where actor is now
-        if (next != null) {
-            setChanged();
-            notifyObservers(next); // to where box may have been pushed
-        }
+        cellChanged(oldActorCell); // where actor was
+        cellChanged(actorCell);    // where actor is now
+        if (hasBox)
+            cellChanged(next);     // to where box was pushed
+        return hasBox;
     }
 
     /**
@@ -253,6 +813,8 @@ public class Sokoban extends Observable {
      */
     @Override
     public String toString() {
+        if (board != null)
+            return board.toString();
         StringBuffer b = new StringBuffer();
         for (int row=0; row<numRows; row++) {
             for (int col=0; col<numCols; col++)
@@ -273,6 +835,24 @@ public class Sokoban extends Observable {
         return ((c == WALL) || (c == BOX) || (c == TARGET_BOX) || (c == ACTOR) || (c == TARGET_ACTOR));
     }
 
+    /**
+     * Split a screen into its non-empty lines
+     * 
+     * @param screen the screen file as a String
+     * @return the non-empty lines of the screen
+     */
+    static ArrayList<String> screenLines(String screen) {
+        ArrayList<String> lines = new ArrayList<>();
+        Scanner           scnr  = new Scanner(screen);
+        while (scnr.hasNextLine()) {
+            String line = scnr.nextLine();
+            if (line.length() > 0)
+                lines.add(line);
+        }
+        scnr.close();
+        return lines;
+    }
+
     /**
      * Convert a file into a String
      * 
@@ -319,7 +899,37 @@ public class Sokoban extends Observable {
     private int      numCols     = 0;
     private Cell     actorCell   = null;
     private Cell[][] cells       = null;
-    private String   startScreen = null;
+    private Snapshot initial     = null; // the starting state, for reset
+    private Layout   layout      = null;
+    private BitBoard board       = null; // only when using the BitBoard backend
+    private long     boxHash     = 0L;   // Zobrist hash of the boxes (Cell backend)
+    private long[]   boxBits     = null; // the boxes as a bitset (Cell backend)
+    private int[]    queue       = null; // scratch for minReachable
+    private long[]   reached     = null; // scratch for minReachable
+
+    private int[] pathStamp      = null; // scratch for pathTo: the generation each square was reached in
+    private int[] pathPrev       = null; // scratch for pathTo: the square each was reached from
+    private int[] pathQueue      = null; // scratch for pathTo
+    private int   pathGeneration = 0;
+
+    private FreezeCache freezeCache   = null; // shared by the cells' freeze checks
+    private boolean     freezeCaching = true;
+    private long[]      freezeVisited = null; // scratch for the cells' freeze checks
+
+    private ArrayList<Move> history     = new ArrayList<>(); // moves made, then any that can be redone
+    private int             historySize = 0;                 // the number of moves made
+
+    private ArrayList<SokobanListener> listeners   = new ArrayList<>();
+    private long[]                     dirty       = null; // squares changed since listeners were last told
+    private int                        updateDepth = 0;    // nesting of beginUpdate/endUpdate
+
+    // maintained by the cells as they change, so the counts never scan the grid
+    private int numBoxesCount    = 0;
+    private int numTargetsCount  = 0;
+    private int numOnTargetCount = 0;
+    private int numActorsCount   = 0;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
 
     private static boolean traceOn = false; // for debugging
 }
@@ -0,0 +1,65 @@
+
+/**
+ * A change to a Sokoban puzzle: the squares whose display changed, in ascending order
+ * (squares are numbered row*numCols+col).
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class SokobanEvent {
+	/**
+	 * Constructor
+	 *
+	 * @param source the puzzle that changed (cannot be null)
+	 * @param squares the changed squares (not copied, so must not be changed afterwards)
+	 */
+	public SokobanEvent(Sokoban source, int[] squares) {
+		if (source == null)
+			throw new IllegalArgumentException("source cannot be null");
+		if (squares == null)
+			throw new IllegalArgumentException("squares cannot be null");
+		this.source  = source;
+		this.squares = squares;
+	}
+
+	/**
+	 * Gets the puzzle that changed
+	 *
+	 * @return the puzzle
+	 */
+	public Sokoban getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the number of changed squares
+	 *
+	 * @return the number of changed squares
+	 */
+	public int numChanged() {
+		return squares.length;
+	}
+
+	/**
+	 * Gets the row of a changed square
+	 *
+	 * @param i which changed square (from 0)
+	 * @return the row (starts from 0)
+	 */
+	public int getRow(int i) {
+		return squares[i]/source.getNumCols();
+	}
+
+	/**
+	 * Gets the column of a changed square
+	 *
+	 * @param i which changed square (from 0)
+	 * @return the column (starts from 0)
+	 */
+	public int getCol(int i) {
+		return squares[i]%source.getNumCols();
+	}
+
+	private final Sokoban source;
+	private final int[]   squares;
+}
@@ -2,6 +2,8 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.io.*;
 
 /**
@@ -10,7 +12,7 @@ import java.io.*;
  * @author Jay Wright
  * @version December 2021
  */
-public class SokobanGUI extends JPanel implements Observer, ActionListener
+public class SokobanGUI extends JPanel implements SokobanListener, ActionListener
 {
     /**
      * Constructor for objects of class SokobanGUI
@@ -18,38 +20,23 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
     public SokobanGUI()
     {
         game = new Sokoban(new File(FILENAME));
-        game.addObserver(this);
+        game.addListener(this);
         makeFrame();
         //System.out.print(game);
     }
 
     /**
-     * This method creates the new game frame, initialises a new JPanel for the grid of game cells and initialises a new
-     * CellPanel object for each cell
+     * This method creates the new game frame and a single BoardPanel that draws every cell of the game straight from
+     * the model
      */
     private void makeFrame() {
         numRows = numRows(); //get the number of rows in the game screen
         numCols = numCols(); //get the number of columns in the game screen
-        makeCharArray(); //build an ArrayList of Strings from the game screen file
-
-        int row, col;
-        //create a new grid panel and individual game cells
-        gameGrid = new JPanel(new GridLayout(numRows, numCols));
-        gameCells = new CellPanel[numRows+1][numCols+1];
-
-        /*loop through each row and column and create a new CellPanel passing a reference to this GUI, the cell's row and
-        column, and the character representing what type of cell it is*/
-        for (row=1; row<=numRows; row++) {
-            for (col=1; col<=numCols; col++) {
-                char current = getCharFromArray(row, col);
-                gameCells[row][col] = new CellPanel(this, row, col, current);
-                gameGrid.add(gameCells[row][col]);
-            }
-        }
 
-        //set the layout of the GUI panel and add the gameGrid of cells
+        //set the layout of the GUI panel and add the board, which grows and shrinks with the window
+        board = new BoardPanel(this, game);
         setLayout(new BorderLayout());
-        add(gameGrid, BorderLayout.NORTH);
+        add(board, BorderLayout.CENTER);
 
         //create the control buttons
         hint = new JButton("Hint");
@@ -62,25 +49,25 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
         save.addActionListener(this);
         load = new JButton("Load");
         load.addActionListener(this);
+        redo = new JButton("Redo");
+        redo.addActionListener(this);
 
         //create a new panel for the control buttons and add the buttons to it
         JPanel controlButtons = new JPanel(new FlowLayout());
         controlButtons.add(hint);
         controlButtons.add(clear);
         controlButtons.add(undo);
+        controlButtons.add(redo);
         controlButtons.add(save);
         controlButtons.add(load);
-        add(controlButtons, BorderLayout.CENTER);
 
-        //create a text area to show the game status and add it to the GUI panel at the bottom
+        //create a text area to show the game status and add it below the buttons at the bottom of the GUI panel
         status = new JTextArea();
-        add(new JScrollPane(status), BorderLayout.SOUTH);
-
-        //register this class with the observable Sokoban class
-        game.addObserver(this);
+        JPanel controls = new JPanel(new BorderLayout());
+        controls.add(controlButtons, BorderLayout.NORTH);
+        controls.add(new JScrollPane(status), BorderLayout.SOUTH);
+        add(controls, BorderLayout.SOUTH);
 
-        //create a new stack for the moves made by the player
-        moves = new Stack<Direction>();
         validMoves();
 
         //add a key listener to the panel and make it visible
@@ -89,23 +76,19 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
     }
 
     /**
-     * Updates the CellPanels when the model code changes. When the update is called it gets the character of the Cell passed in
-     * and passes that to the changeBackground() method of the CellPanel to update its appearance
+     * Updates the board when the model code changes. The event lists every cell changed by a move (or by a whole
+     * batch of moves, such as loading a game), so only the squares of those cells are repainted. A hint being
+     * worked out for the old position is no use any more, so it is canceled
      * 
-     * @param obs is the Obserable
-     * @param obj is the Cell
+     * @param event the change, with the changed cells
      */
     @Override
-    public void update(Observable obs, Object obj) {
-        if (obj == null)
-            throw new SokobanException("Cell is null"); //custom exception for handling a null cell rather than a nullPointer
-        Cell c = (Cell) obj;
-        if (c.isEmpty()) {
-            //do nothing if the cell is empty
-        }
-        //update the CellPanel with the new character
-        char updateChar = c.getDisplay();
-        gameCells[c.getRow()+1][c.getCol()+1].changeBackground(updateChar);
+    public void puzzleChanged(SokobanEvent event) {
+        if (event == null)
+            throw new SokobanException("event is null"); //custom exception for handling a null event rather than a nullPointer
+        for (int i=0; i<event.numChanged(); i++)
+            board.repaintSquare(event.getRow(i), event.getCol(i));
+        cancelHint();
     }
 
     /**
@@ -116,11 +99,13 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
     @Override
     public void actionPerformed(ActionEvent event) {
         if (event.getSource() == hint)
-            JOptionPane.showMessageDialog(null, "Use the WASD keys to move the Orange boxes to the Light Blue Target Squares. Don't get stuck!", "Hint", JOptionPane.INFORMATION_MESSAGE);
+            hint();
         else if (event.getSource() == clear)
             clear();
         else if (event.getSource() == undo)
             undo();
+        else if (event.getSource() == redo)
+            redo();
         else if (event.getSource() == save)
             save();
         else if (event.getSource() == load)
@@ -128,38 +113,164 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
     }
 
     /**
-     * Clears the game back to a new game. Loops through the grid of CellPanel and resets their appearence. Then a new 
-     * Sokoban game is called and is registered with the observable. Finally a new stack of moves is made
+     * Shows the next push of an optimal solution from the current position. The answer comes straight from the
+     * level's solution cache if this line of play has been solved before; otherwise a solver works it out on a
+     * background thread, so the board stays responsive, and the player moving cancels it. Most levels are too big
+     * for an optimal solution to be found in time, so if none is found within OPTIMAL_HINT_MILLIS the hint comes
+     * from the weighted solver instead (see Solver.getInstance), and says that it may not be optimal
      */
-    private void clear() {
-        setStatus("Game Cleared");
-        for (int row=1; row<=numRows; row++) {
-            for (int col=1; col<=numCols; col++) {
-                char current = getCharFromArray(row, col);
-                gameCells[row][col].clear(current);
+    private void hint() {
+        final long      position = game.normalizedHash();
+        final HintCache cache    = hintCache();
+        if (game.onTarget()) {
+            setStatus("Level already won!");
+            return;
+        }
+        if (cache.contains(position)) {
+            showHint(cache, position);
+            return;
+        }
+        if (hintWorker != null) {
+            setStatus("Still working out a hint...");
+            return;
+        }
+        final String screen = game.toString(); //the position now, as the player may move while the hint is worked out
+        final AtomicReference<Solver> running = new AtomicReference<>();
+        setStatus("Working out a hint...");
+        hintSolver = running;
+        hintWorker = new SwingWorker<java.util.List<Direction>, Void>() {
+            @Override
+            protected java.util.List<Direction> doInBackground() {
+                //building the solvers precomputes tables for the level, so it is done here rather than on the EDT
+                Sokoban puzzle = new Sokoban(screen, true);
+                from = puzzle.toBitBoard();
+                optimal = Solver.getInstance("astar", puzzle);
+                optimal.setTimeLimit(OPTIMAL_HINT_MILLIS);
+                java.util.List<Direction> solution = run(optimal);
+                if ((solution == null) && optimal.limitReached()) {
+                    Solver fallback = Solver.getInstance("weighted", puzzle);
+                    fallback.setTimeLimit(HINT_MILLIS-OPTIMAL_HINT_MILLIS);
+                    solution = run(fallback);
+                }
+                return solution;
+            }
+
+            /**
+             * Runs a solver unless the hint has been canceled, publishing it first so cancelHint can stop it
+             * 
+             * @param solver the solver
+             * @return its solution (or null if there is none or the hint was canceled)
+             */
+            private java.util.List<Direction> run(Solver solver) {
+                running.set(solver);
+                if (isCancelled()) //canceled before cancelHint could see this solver
+                    return null;
+                return solver.solve();
             }
+
+            @Override
+            protected void done() {
+                if (hintWorker != this)
+                    return; //canceled, and the player has moved on
+                hintWorker = null;
+                hintSolver = null;
+                java.util.List<Direction> solution = null;
+                try {
+                    solution = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    setStatus("Error - no hint available");
+                    return;
+                }
+                if (solution == null) {
+                    setStatus(optimal.limitReached() ? "No hint found in time" : "No solution from here - try undo");
+                    return;
+                }
+                cache.record(from, solution, !optimal.limitReached());
+                showHint(cache, position);
+            }
+
+            private BitBoard from = null; //the position solved, set by doInBackground before done runs
+            private Solver optimal = null; //the optimal solver
+        };
+        hintWorker.execute();
+    }
+
+    /**
+     * Shows a hint from the solution cache in the status box
+     * 
+     * @param cache the level's solution cache
+     * @param position the normalized hash of the position the hint is for
+     */
+    private void showHint(HintCache cache, long position) {
+        int box = cache.box(position);
+        String push = "push the box at ("+box/numCols+","+box%numCols+") "+cache.direction(position);
+        if (cache.isOptimal(position))
+            setStatus("Hint: "+push);
+        else
+            setStatus("Hint (no optimal solution found in time, so this may not be the shortest way): "+push);
+    }
+
+    /**
+     * Cancels the hint being worked out, if there is one
+     */
+    private void cancelHint() {
+        if (hintWorker == null)
+            return;
+        SwingWorker<java.util.List<Direction>, Void> worker = hintWorker;
+        AtomicReference<Solver> running = hintSolver;
+        hintWorker = null; //first, as canceling on the EDT calls done, which must see the hint is gone
+        hintSolver = null;
+        worker.cancel(false); //before looking for the solver, so one published after this sees the cancel
+        Solver solver = running.get();
+        if (solver != null)
+            solver.cancel();
+    }
+
+    /**
+     * Gets the solution cache for the level being played, which outlives the GUI for that level
+     * 
+     * @return the solution cache
+     */
+    private static HintCache hintCache() {
+        HintCache cache = HINTS.get(FILENAME);
+        if (cache == null) {
+            cache = new HintCache();
+            HINTS.put(FILENAME, cache);
         }
-        game = new Sokoban(new File(FILENAME));
-        game.addObserver(this);
-        moves = new Stack<Direction>();
+        return cache;
+    }
+
+    /**
+     * Clears the game back to a new game. The Sokoban game resets itself in place and the listener repaints
+     * only the squares whose cells changed
+     */
+    private void clear() {
+        setStatus("Game Cleared");
+        game.reset();
     }
 
     /**
      * Undo the last move made by the player or computer
      */
     private void undo() {
-        if (moves.empty()) {
+        if (!game.canUndo()) {
             setStatus("No moves to undo!"); //checks if any moves have been made
             return;
         }
-        Direction lastMove = moves.pop(); //remove the most recent assigned value
-        Stack<Direction> oldStack = moves; //create new temporary stack before clearing
-        clear(); //clears the game which creates a new stack
-        for (Direction d : oldStack) { //cycles through the old stack
-            game.move(d); //automatically makes each move in the stack
-            moves.push(d); //stores the moves made in the newly created stack
+        game.undo(); //reverses the last move, the listener repaints the changed cells
+        validMoves();
+    }
+
+    /**
+     * Redo the last move that was undone
+     */
+    private void redo() {
+        if (!game.canRedo()) {
+            setStatus("No moves to redo!"); //checks if any moves have been undone
+            return;
         }
-        //setStatus("Last move undone!");
+        game.redo();
+        validMoves();
     }
 
     /**
@@ -168,7 +279,7 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
     private void save() {
         try {
             PrintStream printStream = new PrintStream(new File(SAVEGAME)); 
-            for (Direction move : moves)
+            for (Direction move : game.getMoves())
                 printStream.println(move);
             printStream.close();
             setStatus("Game Saved To File");
@@ -178,30 +289,48 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
     }
 
     /**
-     * Loads a game from the SAVEGAME text file by reading each line of the file and calling the relative move() method
+     * Loads a game from the SAVEGAME text file by reading each line of the file and replaying the move on it. The
+     * whole game is replayed as one change, and only once the batch has ended is it checked for a win
      */
     private void load() {
         try {
             Scanner fileScan = new Scanner(new File(SAVEGAME));
             clear();
-            while (fileScan.hasNextLine()) {
-                String line = fileScan.nextLine();
-                if (line.equals("NORTH"))
-                    move(Direction.NORTH);
-                else if (line.equals("EAST"))
-                    move(Direction.EAST);
-                else if (line.equals("WEST"))
-                    move(Direction.WEST);
-                else if (line.equals("SOUTH"))
-                    move(Direction.SOUTH);
+            game.beginUpdate(); //replay the whole game as one change
+            try {
+                while (fileScan.hasNextLine()) {
+                    String line = fileScan.nextLine();
+                    if (line.equals("NORTH"))
+                        replay(Direction.NORTH);
+                    else if (line.equals("EAST"))
+                        replay(Direction.EAST);
+                    else if (line.equals("WEST"))
+                        replay(Direction.WEST);
+                    else if (line.equals("SOUTH"))
+                        replay(Direction.SOUTH);
+                }
+            } finally {
+                game.endUpdate();
+                fileScan.close();
             }
-            fileScan.close();
+            validMoves();
             setStatus("Game Loaded from file");
+            checkWin();
         }
         catch (IOException e) {
             setStatus("Error loading from file");
         }
-    } 
+    }
+
+    /**
+     * Replays a move from a saved game, skipping it if it cannot be made
+     * 
+     * @param dir the direction to move
+     */
+    private void replay(Direction dir) {
+        if (game.canMove(dir))
+            game.move(dir);
+    }
     
     /**
      * If it is safe, move the actor to the next cell in a given direction
@@ -214,14 +343,40 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
             return;
         }
         game.move(dir);
-        moves.push(dir);
         validMoves();
+        checkWin();
+    }
+
+    /**
+     * If every box is on a target, tells the player and offers the next round
+     */
+    private void checkWin() {
         if (game.onTarget()) {
             setStatus("Level Won!");
             gameWinOption();
         }
     }
-    
+
+    /**
+     * Walk the actor to a cell by the shortest path that pushes no box, as a single change
+     * to the board (so it is repainted once)
+     * 
+     * @param row row number (starts from 0)
+     * @param col column number (starts from 0)
+     */
+    public void walkTo(int row, int col) {
+        java.util.List<Direction> path = game.pathTo(row, col);
+        if (path == null) {
+            setStatus("cannot reach that cell");
+            return;
+        }
+        game.beginUpdate(); //the whole walk is one change
+        for (Direction dir : path)
+            game.move(dir);
+        game.endUpdate();
+        validMoves();
+    }
+
     /**
      * Creates a dialogue box that allows the player to move on to the next round
      */
@@ -263,40 +418,6 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
         status.setText(text);
     }
 
-    /**
-     * Called at the beginning of the level, this method creates an ArrayList of Strings from the game screen text file. The 
-     * screenfile is scanned with a Scanner and then the Scanner is looped through to add each line as a String to the Array
-     */
-    private void makeCharArray() {
-        gameArray = new ArrayList<>();
-        File gameFile = new File(FILENAME);
-        String gameString = fileAsString(gameFile);
-        Scanner fileScanner = new Scanner(gameString);
-
-        while (fileScanner.hasNextLine()) {
-            String line = fileScanner.nextLine();
-            if (line.length() > 0) {
-                gameArray.add(line);
-            }
-        }
-    }
-
-    /**
-     * Returns a single character representing a cell on the grid of gamesquares. The local String line grabs the current row
-     * from the ArrayList and the chararacter char display is assigned to the character in the column
-     * 
-     * @param gameRow the row requested
-     * @param gameCol the column requested
-     * @return the character representing the cell
-     */
-    private char getCharFromArray(int gameRow, int gameCol) {
-        int currentRow = gameRow-1;
-        int currentCol = gameCol-1;
-        String line = gameArray.get(currentRow);
-        char display = (currentCol < line.length()) ? line.charAt(currentCol) : Sokoban.EMPTY;
-        return display;
-    }
-
     /**
      * Convert a file into a String
      * 
@@ -350,29 +471,30 @@ public class SokobanGUI extends JPanel implements Observer, ActionListener
     private static JFrame gameFrame;
     private Sokoban game = null;
     
-    private CellPanel[][] gameCells = null;
-    private JPanel gameGrid = null;
+    private BoardPanel board = null;
     //the buttons
     private JButton hint = null;
     private JButton clear = null;
     private JButton undo = null;
+    private JButton redo = null;
     private JButton save = null;
     private JButton load = null;
     
     private JTextArea status = null;
+    private SwingWorker<java.util.List<Direction>, Void> hintWorker = null; //the hint being worked out
+    private AtomicReference<Solver> hintSolver = null; //the solver working it out, published by the hint's worker
     private int numRows;
     private int numCols;
     private int gameFileRows;
     private int gameFileCols;
-    
-    private Stack<Direction> moves = null;
-    private ArrayList<String> gameArray = null;
-    private char currentChar;
 
     private int optionResponse;
     private static int currentGameLevel;
 
     private static final String SAVEGAME = "savegame1.txt";
+    private static final long HINT_MILLIS = 30000; //the longest a hint is worked on
+    private static final long OPTIMAL_HINT_MILLIS = 5000; //the longest spent looking for an optimal hint
+    private static final Map<String, HintCache> HINTS = new HashMap<>(); //the solution cache of each level
 
     private static String  FILENAME; //the level to play
 }
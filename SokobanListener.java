@@ -0,0 +1,17 @@
+
+/**
+ * A listener for changes to a Sokoban puzzle.  Unlike an Observer, which is told about
+ * each changed cell separately, a listener is told once per move (or once per batch of
+ * moves between Sokoban.beginUpdate and Sokoban.endUpdate) with every changed square.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public interface SokobanListener {
+	/**
+	 * The puzzle has changed
+	 *
+	 * @param event the change, with the squares that changed
+	 */
+	public void puzzleChanged(SokobanEvent event);
+}
@@ -17,7 +17,6 @@ public class SokobanUI {
         scnr   = new Scanner(System.in);
         puzzle = new Sokoban(new File(FILENAME));
         player = new RandomPlayer();
-        moves = new Stack<Direction>();
     }
 
     /**
@@ -50,6 +49,7 @@ public class SokobanUI {
         System.out.println("   Move West          [A]");
         System.out.println("   Player move        [P]");
         System.out.println("   Undo move          [U]");
+        System.out.println("   Redo move          [R]");
         System.out.println("   Restart puzzle [Clear]");
         System.out.println("   Save to file    [Save]");
         System.out.println("   Load from file  [Load]");
@@ -87,6 +87,8 @@ public class SokobanUI {
             playerMove();
         } else if (command.equalsIgnoreCase("U")) {
             undo();
+        } else if (command.equalsIgnoreCase("R")) {
+            redo();
         } else if (command.equalsIgnoreCase("Clear")) {
             clear();
         } else if (command.equalsIgnoreCase("Save")) {
@@ -133,15 +135,13 @@ public class SokobanUI {
         Vector<Direction> choices = puzzle.canMove();
         Direction         choice  = player.move(choices);
         move(choice);
-        moves.push(choice);
     }
     
     /**
      * Clears the game back to a new game
      */
     private void clear() {
-        puzzle = new Sokoban(new File(FILENAME));
-        moves = new Stack<Direction>();
+        puzzle.reset();
         System.out.println("Game Cleared");
     }
     
@@ -149,17 +149,22 @@ public class SokobanUI {
      * Undo the last move made by the player or computer
      */
     private void undo() {
-        if (moves.empty()) {
+        if (!puzzle.canUndo()) {
             System.out.println("Nothing to undo"); //checks if any moves have been made
             return;
         }
-        Direction lastMove = moves.pop(); //remove the most recent assigned value
-        Stack<Direction> oldStack = moves; //create new temporary stack before clearing
-        clear(); //clears the game which creates a new stack
-        for (Direction d : oldStack) { //cycles through the old stack
-            puzzle.move(d); //automatically makes each move in the stack
-            moves.push(d); //stores the moves made in the newly created stack
+        puzzle.undo(); //reverses the last move in the model
+    }
+
+    /**
+     * Redo the last move that was undone
+     */
+    private void redo() {
+        if (!puzzle.canRedo()) {
+            System.out.println("Nothing to redo"); //checks if any moves have been undone
+            return;
         }
+        puzzle.redo();
     }
     
     /**
@@ -168,7 +173,7 @@ public class SokobanUI {
     private void save() {
         try {
             PrintStream printStream = new PrintStream(new File(SAVEGAME)); 
-            for (Direction move : moves)
+            for (Direction move : puzzle.getMoves())
                 printStream.println(move);
             printStream.close();
             System.out.println("Game save successful");
@@ -214,7 +219,6 @@ public class SokobanUI {
             return;
         }
         puzzle.move(dir);
-        moves.push(dir);
         //System.out.println(""+dir);
         if (puzzle.onTarget())
             System.out.println("game won!");
@@ -238,7 +242,6 @@ public class SokobanUI {
     private Scanner scnr           = null;
     private Sokoban puzzle         = null;
     private Player  player         = null;
-    private Stack<Direction> moves = null; //stack of moves
     
     private static final String SAVEGAME = "sokobanTextUI.txt"; //savegame text file
 
@@ -0,0 +1,549 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * A solver for a Sokoban puzzle.  Solvers search over box configurations, with the
+ * actor normalized to the region it can reach, and only make pushes the Sokoban model
+ * allows, so a solution can always be played back through Sokoban.move.  Subclasses
+ * provide the search itself; this class provides the successor generation, solution
+ * playback and the statistics (nodes expanded, nodes per second, peak memory).
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public abstract class Solver {
+	/**
+	 * Construct a solver for the current position of a Sokoban puzzle
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 */
+	protected Solver(Sokoban puzzle) {
+		this((puzzle == null) ? null : puzzle.toBitBoard());
+	}
+
+	/**
+	 * Construct a solver for a standard Sokoban screen file passed as a String
+	 *
+	 * @param screen the screen file as a String
+	 */
+	protected Solver(String screen) {
+		this(new BitBoard(screen));
+	}
+
+	/**
+	 * Construct a solver for a board
+	 *
+	 * @param start the starting position (cannot be null)
+	 */
+	protected Solver(BitBoard start) {
+		if (start == null)
+			throw new IllegalArgumentException("start cannot be null");
+		this.start     = start.copy();
+		this.layout    = start.getLayout();
+		this.work      = start.copy();
+		this.scratch   = start.copy();
+		this.deadlocks = new DeadlockDetector(layout);
+		this.corrals   = new CorralPruner(layout);
+	}
+
+	/**
+	 * Find a solution
+	 *
+	 * @return the moves that solve the puzzle (or null if none was found within the limits)
+	 */
+	public final List<Direction> solve() {
+		nodesExpanded = 0;
+		limitReached  = false;
+		solution      = null;
+		pushes        = 0;
+		peakMemory    = usedMemory();
+		startTime     = System.nanoTime();
+		solution      = search();
+		elapsed       = System.nanoTime()-startTime;
+		sampleMemory();
+		return solution;
+	}
+
+	/**
+	 * The search itself
+	 *
+	 * @return the moves that solve the puzzle (or null if none was found within the limits)
+	 */
+	protected abstract List<Direction> search();
+
+	/**
+	 * Sets a limit on the time taken by solve
+	 *
+	 * @param millis the time limit in milliseconds (0 for no limit)
+	 */
+	public void setTimeLimit(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("time limit cannot be negative");
+		timeLimit = millis;
+	}
+
+	/**
+	 * Sets a limit on the heap used during solve.  The heap is sampled now and again while
+	 * the search runs; if it is over the limit even after a garbage collection the search
+	 * stops as if it had run out of time.  The heap is shared by the whole JVM, so when
+	 * several solvers run at once each is measured against the total (SolverBenchmark runs
+	 * each level in a JVM of its own for this reason).
+	 *
+	 * @param bytes the memory limit in bytes (0 for no limit)
+	 */
+	public void setMemoryLimit(long bytes) {
+		if (bytes < 0)
+			throw new IllegalArgumentException("memory limit cannot be negative");
+		memoryLimit = bytes;
+	}
+
+	/**
+	 * Stop a solve, from another thread, as if a limit had been reached.  The solve returns
+	 * null soon after, and a canceled solver stays canceled.
+	 */
+	public void cancel() {
+		canceled = true;
+	}
+
+	/**
+	 * Sets whether pushes through tunnels and into goal rooms are made as single steps
+	 * (see MacroGenerator), which prunes the search but may cost push-optimality
+	 *
+	 * @param on should macro pushes be used?
+	 */
+	public void setMacros(boolean on) {
+		macros = on ? new MacroGenerator(start) : null;
+	}
+
+	/**
+	 * Gets the number of nodes expanded by the last solve
+	 *
+	 * @return the number of nodes expanded
+	 */
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * Gets the time taken by the last solve
+	 *
+	 * @return the time taken in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsed/1000000L;
+	}
+
+	/**
+	 * Gets the rate of node expansion during the last solve
+	 *
+	 * @return the nodes expanded per second
+	 */
+	public double getNodesPerSecond() {
+		return (elapsed == 0) ? 0.0 : getNodesExpanded()*1.0e9/elapsed;
+	}
+
+	/**
+	 * Gets the peak heap use seen during the last solve
+	 *
+	 * @return the peak heap use in bytes
+	 */
+	public long getPeakMemory() {
+		return peakMemory;
+	}
+
+	/**
+	 * Gets the number of pushes in the last solution
+	 *
+	 * @return the number of pushes
+	 */
+	public int getPushes() {
+		return pushes;
+	}
+
+	/**
+	 * Did the last solve stop because it reached a limit rather than because it finished?
+	 *
+	 * @return did the last solve reach a limit?
+	 */
+	public boolean limitReached() {
+		return limitReached;
+	}
+
+	/**
+	 * A short report of the last solve
+	 *
+	 * @return the report
+	 */
+	public String report() {
+		StringBuffer b = new StringBuffer();
+		b.append((solution != null) ? "solved" : (limitReached ? "limit reached" : "no solution"));
+		if (solution != null)
+			b.append(", "+pushes+" pushes, "+solution.size()+" moves");
+		b.append(", "+getNodesExpanded()+" nodes expanded in "+getElapsedMillis()+" ms");
+		b.append(String.format(" (%.0f nodes/s)", getNodesPerSecond()));
+		b.append(", peak memory "+(getPeakMemory() >> 20)+" MB");
+		return b.toString();
+	}
+
+	/**
+	 * Count a node expansion, sampling the heap (and checking the memory limit) now and again
+	 */
+	protected void expanded() {
+		nodesExpanded++;
+		if ((nodesExpanded & SAMPLE_MASK) == 0) {
+			sampleMemory();
+			if ((memoryLimit > 0) && (usedMemory() > memoryLimit)) {
+				System.gc(); // only what survives a collection counts against the limit
+				if (usedMemory() > memoryLimit)
+					limitReached = true;
+			}
+		}
+	}
+
+	/**
+	 * Has the time limit (or the memory limit) been reached, or the solve been canceled?
+	 * (Sets limitReached if so)
+	 *
+	 * @return has a limit been reached?
+	 */
+	protected boolean outOfTime() {
+		if (canceled || ((timeLimit > 0) && (System.nanoTime()-startTime > timeLimit*1000000L)))
+			limitReached = true;
+		return limitReached;
+	}
+
+	/**
+	 * Stop the search as if a limit had been reached, for limits a subclass keeps itself
+	 */
+	protected void stopAtLimit() {
+		limitReached = true;
+	}
+
+	/**
+	 * Records the peak heap use
+	 */
+	protected void sampleMemory() {
+		long used = usedMemory();
+		if (used > peakMemory)
+			peakMemory = used;
+	}
+
+	/**
+	 * The node for the starting position
+	 *
+	 * @return the start node
+	 */
+	protected SearchNode startNode() {
+		return rootNode(start.boxes(), start.getActor());
+	}
+
+	/**
+	 * A node with no parent for a position, such as one read back from storage
+	 *
+	 * @param boxes the box bitset (copied)
+	 * @param actor the actor square (need not be normalized)
+	 * @return the node
+	 */
+	protected SearchNode rootNode(long[] boxes, int actor) {
+		work.load(boxes, actor);
+		int normal = work.normalizedActor();
+		return new SearchNode(boxes.clone(), normal, work.boxHash() ^ layout.actorKey(normal), null, -1, null, 0);
+	}
+
+	/**
+	 * Is every box on a target in a node?
+	 *
+	 * @param node the node to check
+	 * @return is the node solved?
+	 */
+	protected boolean isSolved(SearchNode node) {
+		return layout.countBoth(node.getBoxes(), layout.targets()) == layout.numTargets();
+	}
+
+	/**
+	 * The sum over the boxes of the push distance to the nearest target: a lower bound
+	 * on the pushes still needed (UNREACHABLE if a box can never reach a target)
+	 *
+	 * @param boxes the box bitset
+	 * @return the lower bound
+	 */
+	protected int lowerBound(long[] boxes) {
+		int sum = 0;
+		for (int i=0; i<boxes.length; i++) {
+			for (long word=boxes[i]; word != 0; word &= word-1) {
+				int dist = layout.pushDistance((i << 6)+Long.numberOfTrailingZeros(word));
+				if (dist == Layout.UNREACHABLE)
+					return Layout.UNREACHABLE;
+				sum += dist;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Generate the successors of a node: one for every push the model allows from the
+	 * region the actor can reach, carried on as a macro push where one applies, leaving
+	 * out pushes that deadlock the position (see DeadlockDetector) and, when a corral has
+	 * to be opened first, pushes that do not open it (see CorralPruner)
+	 *
+	 * @param node the node to expand
+	 * @param successors the list to fill (cleared first)
+	 */
+	protected void successors(SearchNode node, List<SearchNode> successors) {
+		successors.clear();
+		long[] boxes = node.getBoxes();
+		work.load(boxes, node.getActor(), node.getHash() ^ layout.actorKey(node.getActor()));
+		work.normalizedActor();
+		long[] reach  = work.reachable();
+		long[] corral = corrals.find(work);
+		for (int i=0; i<boxes.length; i++) {
+			for (long word=boxes[i]; word != 0; word &= word-1) {
+				int box = (i << 6)+Long.numberOfTrailingZeros(word);
+				for (Direction dir : DIRECTIONS) {
+					int from = layout.neighbour(box, dir.reverse());
+					if ((from < 0) || !Layout.test(reach, from) || !work.canPush(box, dir))
+						continue;
+					int to = layout.neighbour(box, dir);
+					if ((corral != null) && !Layout.test(corral, to))
+						continue;
+					long[] child = boxes.clone();
+					Layout.clear(child, box);
+					Layout.set(child, to);
+					Direction[] macro = (macros == null) ? null : macros.extend(child, box, dir);
+					SearchNode  next  = (macro == null) ? childNode(node, child, box, dir) : macroNode(node, child, box, macro);
+					// building the node found the actor's reach after the push, which the corral check reuses
+					if (deadlocks.isDeadlocked(child, pushedTo(next), (macro == null) ? dir : macro[macro.length-1],
+						scratch.reachable(), next.getActor()))
+						continue;
+					successors.add(next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Build the node reached by a push, normalizing the actor (who ends up where the box was)
+	 *
+	 * @param parent the node pushed from
+	 * @param child the box bitset after the push
+	 * @param box the square the box was pushed from
+	 * @param dir the direction of the push
+	 * @return the new node
+	 */
+	protected SearchNode childNode(SearchNode parent, long[] child, int box, Direction dir) {
+		long boxHash = parent.getHash() ^ layout.actorKey(parent.getActor()) ^ layout.boxKey(box) ^ layout.boxKey(layout.neighbour(box, dir));
+		scratch.load(child, box, boxHash);
+		int actor = scratch.normalizedActor();
+		return new SearchNode(child, actor, scratch.boxHash() ^ layout.actorKey(actor), parent, box, dir, parent.getPushes()+1);
+	}
+
+	/**
+	 * Build the node reached by a macro push of one box
+	 *
+	 * @param parent the node pushed from
+	 * @param child the box bitset after the pushes
+	 * @param box the square the box was pushed from
+	 * @param macro the directions of the pushes
+	 * @return the new node
+	 */
+	protected SearchNode macroNode(SearchNode parent, long[] child, int box, Direction[] macro) {
+		int  to      = endOf(box, macro);
+		long boxHash = parent.getHash() ^ layout.actorKey(parent.getActor()) ^ layout.boxKey(box) ^ layout.boxKey(to);
+		scratch.load(child, layout.neighbour(to, macro[macro.length-1].reverse()), boxHash);
+		int        actor = scratch.normalizedActor();
+		SearchNode node  = new SearchNode(child, actor, scratch.boxHash() ^ layout.actorKey(actor), parent, box, macro[0],
+			parent.getPushes()+macro.length);
+		node.setMacro(macro);
+		return node;
+	}
+
+	/**
+	 * The square the box pushed to reach a node ends up on
+	 *
+	 * @param node the node (not the start)
+	 * @return the square index
+	 */
+	protected int pushedTo(SearchNode node) {
+		if (node.getMacro() == null)
+			return layout.neighbour(node.getBox(), node.getDir());
+		return endOf(node.getBox(), node.getMacro());
+	}
+
+	/**
+	 * The square a macro push takes a box to
+	 *
+	 * @param box the square the box is pushed from
+	 * @param macro the directions of the pushes
+	 * @return the square index
+	 */
+	private int endOf(int box, Direction[] macro) {
+		int to = box;
+		for (Direction dir : macro)
+			to = layout.neighbour(to, dir);
+		return to;
+	}
+
+	/**
+	 * Turn the chain of pushes ending at a node into moves, playing each one on a copy of
+	 * the start so the result is known to be legal
+	 *
+	 * @param goal the final node
+	 * @return the moves from the start to the goal
+	 */
+	protected List<Direction> solution(SearchNode goal) {
+		ArrayList<SearchNode> chain = new ArrayList<>();
+		for (SearchNode node=goal; node.getParent() != null; node=node.getParent())
+			chain.add(node);
+		Collections.reverse(chain);
+		BitBoard        board = start.copy();
+		List<Direction> moves = new ArrayList<>();
+		pushes = 0;
+		for (SearchNode node : chain) {
+			int box = node.getBox();
+			for (Direction dir : (node.getMacro() == null) ? new Direction[] { node.getDir() } : node.getMacro()) {
+				for (Direction step : walk(board, layout.neighbour(box, dir.reverse()))) {
+					board.move(step);
+					moves.add(step);
+				}
+				board.move(dir);
+				moves.add(dir);
+				box = layout.neighbour(box, dir);
+				pushes++;
+			}
+		}
+		return moves;
+	}
+
+	/**
+	 * The shortest walk (without pushing) for the actor to a square
+	 *
+	 * @param board the board
+	 * @param to the square to walk to
+	 * @return the moves (empty if already there)
+	 */
+	protected static List<Direction> walk(BitBoard board, int to) {
+		Layout layout = board.getLayout();
+		int    size   = layout.numSquares();
+		int[]  prev   = new int[size];
+		int[]  queue  = new int[size];
+		int    head   = 0;
+		int    tail   = 0;
+		Arrays.fill(prev, -1);
+		int from = board.getActor();
+		prev[from]    = from;
+		queue[tail++] = from;
+		while ((head < tail) && (prev[to] < 0)) {
+			int idx = queue[head++];
+			for (Direction dir : DIRECTIONS) {
+				int next = layout.neighbour(idx, dir);
+				if (!layout.isWall(next) && !board.hasBox(next) && (prev[next] < 0)) {
+					prev[next]    = idx;
+					queue[tail++] = next;
+				}
+			}
+		}
+		if (prev[to] < 0)
+			throw new SokobanException("cannot walk to square "+to);
+		LinkedList<Direction> steps = new LinkedList<>();
+		for (int idx=to; idx != from; idx=prev[idx])
+			steps.addFirst(stepBetween(layout, prev[idx], idx));
+		return steps;
+	}
+
+	/**
+	 * The direction between two adjacent squares
+	 *
+	 * @param layout the layout
+	 * @param from the first square
+	 * @param to the adjacent square
+	 * @return the direction from the first square to the second
+	 */
+	protected static Direction stepBetween(Layout layout, int from, int to) {
+		for (Direction dir : DIRECTIONS)
+			if (layout.neighbour(from, dir) == to)
+				return dir;
+		throw new IllegalArgumentException("squares are not adjacent");
+	}
+
+	/**
+	 * A factory method to construct a solver by name
+	 *
+	 * @param name the solver name ("astar", "idastar", "parallel", "bidirectional", "bfs" or
+	 *             "weighted", an A* solver with weight WEIGHT and macro pushes on, which is
+	 *             the one that is not push-optimal)
+	 * @param puzzle the puzzle to solve
+	 * @return the solver
+	 */
+	public static Solver getInstance(String name, Sokoban puzzle) {
+		if (name == null)
+			throw new IllegalArgumentException("name cannot be null");
+		if (name.equalsIgnoreCase("astar"))
+			return new AStarSolver(puzzle);
+		if (name.equalsIgnoreCase("idastar"))
+			return new IDAStarSolver(puzzle);
+		if (name.equalsIgnoreCase("parallel"))
+			return new ParallelSolver(puzzle);
+		if (name.equalsIgnoreCase("bidirectional"))
+			return new BidirectionalSolver(puzzle);
+		if (name.equalsIgnoreCase("bfs"))
+			return new ExternalBFSSolver(puzzle);
+		if (name.equalsIgnoreCase("weighted")) {
+			AStarSolver solver = new AStarSolver(puzzle);
+			solver.setWeight(WEIGHT);
+			solver.setMacros(true);
+			return solver;
+		}
+		throw new IllegalArgumentException("unknown solver: "+name);
+	}
+
+	/**
+	 * The heap in use now
+	 *
+	 * @return the heap in use in bytes
+	 */
+	private static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		return rt.totalMemory()-rt.freeMemory();
+	}
+
+	/**
+	 * Solve a screen file: java Solver screens/screen.1 [solver name] [time limit ms]
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("usage: java Solver <screen file> [solver] [time limit ms]");
+			return;
+		}
+		Sokoban puzzle = new Sokoban(new File(args[0]), true);
+		Solver  solver = getInstance((args.length > 1) ? args[1] : "astar", puzzle);
+		if (args.length > 2)
+			solver.setTimeLimit(Long.parseLong(args[2]));
+		List<Direction> moves = solver.solve();
+		System.out.println(args[0]+": "+solver.report());
+		if (moves != null)
+			System.out.println(moves);
+	}
+
+	protected final BitBoard       start;
+	protected final Layout         layout;
+	private final BitBoard         work;      // the node being expanded
+	private final BitBoard         scratch;   // the child being built
+	private final DeadlockDetector deadlocks; // prunes pushes that can never lead to a solution
+	private final CorralPruner     corrals;   // prunes pushes made needless by a corral that must be opened
+	private MacroGenerator         macros     = null;
+
+	private long             timeLimit     = 0;
+	private long             memoryLimit   = 0;
+	private long             startTime     = 0;
+	private long             elapsed       = 0;
+	private long             nodesExpanded = 0;
+	private long             peakMemory    = 0;
+	private int              pushes        = 0;
+	private boolean          limitReached  = false;
+	private volatile boolean canceled      = false; // set by cancel, from any thread
+	private List<Direction>  solution      = null;
+
+	protected static final Direction[] DIRECTIONS  = Direction.values();
+	private static final long          SAMPLE_MASK = 0x3FF; // sample the heap every 1024 expansions
+	private static final int           WEIGHT      = 2;     // the heuristic weight of the "weighted" solver
+}
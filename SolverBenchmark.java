@@ -0,0 +1,402 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs a solver (or a player) over a set of levels, by default every level in screens/,
+ * with a time and memory budget per level, and reports one LevelResult per level as CSV
+ * or JSON.  Levels run in parallel, one per thread.  A solver's solution is checked by
+ * playing it back through the Sokoban model.  Given the CSV of an earlier run, the
+ * runner also reports which levels changed, so two builds can be compared.
+ * <p>
+ * Heap use can only be measured for a whole JVM, so by default each level runs in a JVM
+ * of its own.  Only then is a level's memory budget checked against, and its peak heap
+ * made up of, nothing but its own allocations.  Its maximum heap is the memory budget
+ * plus some headroom, or without a budget an equal share of this JVM's maximum heap, so
+ * the levels running at once do not together reserve many times the memory there is.
+ * Levels can instead run in this JVM, but
+ * then the levels running at once share one heap (and one garbage collector), and a
+ * level's peak includes whatever earlier levels left behind, so a memory budget means
+ * little unless one level runs at a time.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class SolverBenchmark {
+	/**
+	 * Constructor
+	 *
+	 * @param name the name of a solver (see Solver.getInstance) or of a player (see getPlayer)
+	 * @param millis the time budget per level in milliseconds (0 for no limit)
+	 * @param bytes the memory budget per level in bytes (0 for no limit)
+	 */
+	public SolverBenchmark(String name, long millis, long bytes) {
+		if (name == null)
+			throw new IllegalArgumentException("name cannot be null");
+		if ((millis < 0) || (bytes < 0))
+			throw new IllegalArgumentException("budgets cannot be negative");
+		this.name   = name;
+		this.millis = millis;
+		this.bytes  = bytes;
+	}
+
+	/**
+	 * Sets whether solvers use macro pushes (see Solver.setMacros); a solver that uses them
+	 * anyway keeps them either way
+	 *
+	 * @param on should every solver use macro pushes?
+	 */
+	public void setMacros(boolean on) {
+		macros = on;
+	}
+
+	/**
+	 * Sets whether each level runs in a JVM of its own, so that its memory budget and peak
+	 * heap are its own (the default), or in this JVM
+	 *
+	 * @param on should each level run in a JVM of its own?
+	 */
+	public void setIsolated(boolean on) {
+		isolated = on;
+	}
+
+	/**
+	 * Run every level, several at once
+	 *
+	 * @param levels the level files (cannot be null)
+	 * @param threads the number of levels to run at once (must be positive)
+	 * @return the results, in the same order as the levels
+	 */
+	public List<LevelResult> run(List<File> levels, int threads) {
+		if (levels == null)
+			throw new IllegalArgumentException("levels cannot be null");
+		if (threads <= 0)
+			throw new IllegalArgumentException("threads must be positive");
+		ExecutorService           pool    = Executors.newFixedThreadPool(threads);
+		List<Future<LevelResult>> futures = new ArrayList<>();
+		final long                heap    = childHeap(threads);
+		for (final File level : levels) {
+			futures.add(pool.submit(new Callable<LevelResult>() {
+				@Override
+				public LevelResult call() {
+					return isolated ? runIsolated(level, heap) : run(level);
+				}
+			}));
+		}
+		pool.shutdown();
+		List<LevelResult> results = new ArrayList<>();
+		try {
+			for (Future<LevelResult> future : futures)
+				results.add(future.get());
+		} catch (InterruptedException | ExecutionException e) {
+			pool.shutdownNow();
+			throw new SokobanException("benchmark interrupted: "+e);
+		}
+		return results;
+	}
+
+	/**
+	 * Run one level
+	 *
+	 * @param level the level file (cannot be null)
+	 * @return the result
+	 */
+	public LevelResult run(File level) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		long start = System.nanoTime();
+		try {
+			Sokoban puzzle = new Sokoban(level, true);
+			Player  player = getPlayer(name, puzzle);
+			return (player != null) ? play(level, puzzle, player, start) : solve(level, puzzle, start);
+		} catch (OutOfMemoryError e) {
+			return new LevelResult(level.getName(), name, LevelResult.OUT_OF_MEMORY, 0, 0, 0, sinceMillis(start), usedMemory());
+		} catch (RuntimeException e) {
+			System.err.println(level.getName()+": "+e);
+			return new LevelResult(level.getName(), name, LevelResult.ERROR, 0, 0, 0, sinceMillis(start), usedMemory());
+		}
+	}
+
+	/**
+	 * The maximum heap of the JVM each level runs in: the memory budget and some headroom
+	 * when there is a budget, otherwise an equal share of this JVM's maximum heap, so the
+	 * levels running at once never reserve more than this JVM could have used
+	 *
+	 * @param threads the number of levels running at once
+	 * @return the maximum heap in bytes
+	 */
+	private long childHeap(int threads) {
+		if (bytes > 0)
+			return bytes+Math.max(bytes/4, MIN_HEADROOM);
+		return Math.max(MIN_HEADROOM, Runtime.getRuntime().maxMemory()/threads);
+	}
+
+	/**
+	 * Run one level in a JVM of its own
+	 *
+	 * @param level the level file
+	 * @param heap the maximum heap of the JVM in bytes (see childHeap)
+	 * @return the result
+	 */
+	private LevelResult runIsolated(File level, long heap) {
+		long         start   = System.nanoTime();
+		List<String> command = new ArrayList<>(Arrays.asList(
+			System.getProperty("java.home")+File.separator+"bin"+File.separator+"java",
+			"-Xmx"+(heap >> 20)+"m", "-cp", System.getProperty("java.class.path"),
+			"SolverBenchmark", "-inprocess", "-threads", "1", "-solver", name, "-ms", ""+millis, "-mb", ""+(bytes >> 20)));
+		if (macros)
+			command.add("-macros");
+		command.add(level.getPath());
+		try {
+			Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			Scanner output  = new Scanner(process.getInputStream());
+			String  last    = null;
+			while (output.hasNextLine()) {
+				String line = output.nextLine();
+				if ((line.length() > 0) && !line.equals(LevelResult.CSV_HEADER))
+					last = line;
+			}
+			output.close();
+			process.waitFor();
+			if (last != null)
+				return LevelResult.fromCsv(last);
+			System.err.println(level.getName()+": no result, exit code "+process.exitValue());
+		} catch (IOException e) {
+			throw new SokobanException("cannot run "+level.getName()+": "+e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return new LevelResult(level.getName(), name, LevelResult.ERROR, 0, 0, 0, sinceMillis(start), 0);
+	}
+
+	/**
+	 * Solve a level with a solver, checking the solution by playing it
+	 *
+	 * @param level the level file
+	 * @param puzzle the puzzle
+	 * @param start when the run started (System.nanoTime)
+	 * @return the result
+	 */
+	private LevelResult solve(File level, Sokoban puzzle, long start) {
+		Solver solver = Solver.getInstance(name, puzzle);
+		solver.setTimeLimit(millis);
+		solver.setMemoryLimit(bytes);
+		if (macros) // a solver that makes macro pushes anyway (see Solver.getInstance) keeps them
+			solver.setMacros(true);
+		List<Direction> moves  = solver.solve();
+		String          status = LevelResult.SOLVED;
+		if (moves == null)
+			status = solver.limitReached() ? LevelResult.LIMIT : LevelResult.UNSOLVABLE;
+		else {
+			for (Direction dir : moves)
+				puzzle.move(dir);
+			if (!puzzle.onTarget())
+				throw new SokobanException("solution does not solve the level");
+		}
+		return new LevelResult(level.getName(), name, status, (moves == null) ? 0 : solver.getPushes(),
+			(moves == null) ? 0 : moves.size(), solver.getNodesExpanded(), sinceMillis(start), solver.getPeakMemory());
+	}
+
+	/**
+	 * Play a level with a player until it is solved, the actor is stuck or a budget runs out
+	 *
+	 * @param level the level file
+	 * @param puzzle the puzzle
+	 * @param player the player
+	 * @param start when the run started (System.nanoTime)
+	 * @return the result
+	 */
+	private LevelResult play(File level, Sokoban puzzle, Player player, long start) {
+		long   tried  = 0;
+		long   peak   = usedMemory();
+		String status = LevelResult.SOLVED;
+		while (!puzzle.onTarget()) {
+			Vector<Direction> choices = puzzle.canMove();
+			if (choices.isEmpty()) {
+				status = LevelResult.STUCK;
+				break;
+			}
+			if ((millis > 0) && (sinceMillis(start) >= millis)) {
+				status = LevelResult.LIMIT;
+				break;
+			}
+			puzzle.move(player.move(choices));
+			tried++;
+			if ((tried & SAMPLE_MASK) == 0) {
+				peak = Math.max(peak, usedMemory());
+				if ((bytes > 0) && (peak > bytes)) {
+					status = LevelResult.LIMIT;
+					break;
+				}
+			}
+		}
+		boolean solved = status.equals(LevelResult.SOLVED);
+		return new LevelResult(level.getName(), name, status, solved ? puzzle.numPushes() : 0,
+			solved ? puzzle.getMoves().size() : 0, tried, sinceMillis(start), Math.max(peak, usedMemory()));
+	}
+
+	/**
+	 * A factory method to construct a player by name
+	 *
+	 * @param name the player name ("random" or "mcts")
+	 * @param puzzle the puzzle the player will play
+	 * @return the player (or null if the name is not a player)
+	 */
+	public static Player getPlayer(String name, Sokoban puzzle) {
+		if (name == null)
+			throw new IllegalArgumentException("name cannot be null");
+		if (name.equalsIgnoreCase("random"))
+			return new RandomPlayer();
+		if (name.equalsIgnoreCase("mcts"))
+			return new MCTSPlayer(puzzle);
+		return null;
+	}
+
+	/**
+	 * Describe the changes between an earlier run and this one
+	 *
+	 * @param before the results of the earlier run
+	 * @param after the results of this run
+	 * @return the changes, one per line
+	 */
+	public static String compare(List<LevelResult> before, List<LevelResult> after) {
+		Map<String, LevelResult> old = new HashMap<>();
+		for (LevelResult result : before)
+			old.put(result.getLevel(), result);
+		StringBuffer b            = new StringBuffer();
+		int          solvedBefore = 0;
+		int          solvedAfter  = 0;
+		long         timeBefore   = 0;
+		long         timeAfter    = 0;
+		for (LevelResult now : after) {
+			LevelResult then = old.get(now.getLevel());
+			if (then == null)
+				continue;
+			solvedBefore += then.isSolved() ? 1 : 0;
+			solvedAfter  += now.isSolved() ? 1 : 0;
+			if (then.isSolved() && now.isSolved()) {
+				timeBefore += then.getMillis();
+				timeAfter  += now.getMillis();
+				if (then.getPushes() != now.getPushes())
+					b.append(now.getLevel()+": "+then.getPushes()+" -> "+now.getPushes()+" pushes\n");
+			} else if (!then.getStatus().equals(now.getStatus()))
+				b.append(now.getLevel()+": "+then.getStatus()+" -> "+now.getStatus()+"\n");
+		}
+		b.append("solved "+solvedBefore+" -> "+solvedAfter);
+		b.append(", time on levels solved by both "+timeBefore+" ms -> "+timeAfter+" ms");
+		if (timeBefore > 0)
+			b.append(String.format(" (%+.1f%%)", 100.0*(timeAfter-timeBefore)/timeBefore));
+		return b.toString();
+	}
+
+	/**
+	 * Read the results of an earlier run from a CSV file
+	 *
+	 * @param file the CSV file
+	 * @return the results
+	 */
+	public static List<LevelResult> readCsv(File file) {
+		List<LevelResult> results = new ArrayList<>();
+		Scanner           lines   = new Scanner(Sokoban.fileAsString(file));
+		while (lines.hasNextLine()) {
+			String line = lines.nextLine();
+			if ((line.length() > 0) && !line.equals(LevelResult.CSV_HEADER))
+				results.add(LevelResult.fromCsv(line));
+		}
+		return results;
+	}
+
+	/**
+	 * The time since a start time
+	 *
+	 * @param start the start time (System.nanoTime)
+	 * @return the time in milliseconds
+	 */
+	private static long sinceMillis(long start) {
+		return (System.nanoTime()-start)/1000000L;
+	}
+
+	/**
+	 * The heap in use now
+	 *
+	 * @return the heap in use in bytes
+	 */
+	private static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		return rt.totalMemory()-rt.freeMemory();
+	}
+
+	/**
+	 * Run the benchmark:
+	 * java SolverBenchmark [-solver name] [-ms budget] [-mb budget] [-threads n] [-macros] [-inprocess] [-json] [-out file] [-compare file.csv] [level files...]
+	 * (-inprocess runs the levels in this JVM rather than each in its own, see setIsolated)
+	 */
+	public static void main(String[] args) throws IOException {
+		String     name     = "astar";
+		long       millis   = 60000;
+		long       mb       = 0;
+		int        threads  = Runtime.getRuntime().availableProcessors();
+		boolean    json     = false;
+		boolean    macros   = false;
+		boolean    isolated = true;
+		File       out      = null;
+		File       baseline = null;
+		List<File> levels   = new ArrayList<>();
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("-solver") && (i+1 < args.length))
+				name = args[++i];
+			else if (args[i].equals("-ms") && (i+1 < args.length))
+				millis = Long.parseLong(args[++i]);
+			else if (args[i].equals("-mb") && (i+1 < args.length))
+				mb = Long.parseLong(args[++i]);
+			else if (args[i].equals("-threads") && (i+1 < args.length))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-json"))
+				json = true;
+			else if (args[i].equals("-macros"))
+				macros = true;
+			else if (args[i].equals("-inprocess"))
+				isolated = false;
+			else if (args[i].equals("-out") && (i+1 < args.length))
+				out = new File(args[++i]);
+			else if (args[i].equals("-compare") && (i+1 < args.length))
+				baseline = new File(args[++i]);
+			else if (args[i].startsWith("-")) {
+				System.out.println("usage: java SolverBenchmark [-solver name] [-ms budget] [-mb budget] [-threads n] [-macros] [-inprocess] [-json] [-out file] [-compare file.csv] [level files...]");
+				return;
+			} else
+				levels.add(new File(args[i]));
+		}
+		if (levels.isEmpty())
+			levels = Benchmark.levels(new File("screens"));
+		SolverBenchmark benchmark = new SolverBenchmark(name, millis, mb << 20);
+		benchmark.setMacros(macros);
+		benchmark.setIsolated(isolated);
+		List<LevelResult> results = benchmark.run(levels, threads);
+
+		PrintStream report = (out == null) ? System.out : new PrintStream(out);
+		if (json) {
+			report.println("[");
+			for (int i=0; i<results.size(); i++)
+				report.println("  "+results.get(i).toJson()+((i < results.size()-1) ? "," : ""));
+			report.println("]");
+		} else {
+			report.println(LevelResult.CSV_HEADER);
+			for (LevelResult result : results)
+				report.println(result.toCsv());
+		}
+		if (out != null)
+			report.close();
+		if (baseline != null)
+			System.err.println(compare(readCsv(baseline), results));
+	}
+
+	private final String name;
+	private final long   millis;
+	private final long   bytes;
+	private boolean      macros   = false;
+	private boolean      isolated = true;
+
+	private static final long SAMPLE_MASK  = 0x3FF;    // sample the heap every 1024 moves
+	private static final long MIN_HEADROOM = 64L << 20; // the least heap a level's JVM has beyond its budget
+}
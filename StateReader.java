@@ -0,0 +1,135 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * Reads back, in order, the fixed-size solver state records written by a StateWriter,
+ * through a window of the file mapped into memory that moves along as it is read.  The
+ * current record is held in an array so that readers of sorted files can be merged.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+class StateReader {
+	/**
+	 * Open a file of records, positioned before the first
+	 *
+	 * @param file the file (cannot be null)
+	 * @param stride the longs in a record (must be positive)
+	 */
+	StateReader(File file, int stride) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		if (stride <= 0)
+			throw new IllegalArgumentException("stride must be positive");
+		this.file    = file;
+		this.stride  = stride;
+		this.window  = windowLongs(stride);
+		this.current = new long[stride];
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			count   = channel.size()/(8L*stride);
+		} catch (IOException e) {
+			throw new SokobanException("cannot open "+file+": "+e);
+		}
+	}
+
+	/**
+	 * Move to the next record
+	 *
+	 * @return is there a next record (false at the end of the file)?
+	 */
+	boolean next() {
+		if (read == count)
+			return false;
+		if ((buffer == null) || (buffer.remaining() < stride))
+			map();
+		buffer.get(current, 0, stride);
+		read++;
+		return true;
+	}
+
+	/**
+	 * Gets the current record (valid after next returns true, and changed by the next call)
+	 *
+	 * @return the current record
+	 */
+	long[] current() {
+		return current;
+	}
+
+	/**
+	 * Gets the number of records in the file
+	 *
+	 * @return the number of records
+	 */
+	long count() {
+		return count;
+	}
+
+	/**
+	 * Close the file
+	 */
+	void close() {
+		buffer = null;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new SokobanException("cannot close "+file+": "+e);
+		}
+	}
+
+	/**
+	 * Compare two records, long by long (the order the files are sorted in)
+	 *
+	 * @param a the array holding the first record
+	 * @param ai the index of the first record in a
+	 * @param b the array holding the second record
+	 * @param bi the index of the second record in b
+	 * @param stride the longs in a record
+	 * @return negative, zero or positive as the first record is before, equal to or after the second
+	 */
+	static int compare(long[] a, int ai, long[] b, int bi, int stride) {
+		for (int i=0; i<stride; i++) {
+			if (a[ai+i] != b[bi+i])
+				return (a[ai+i] < b[bi+i]) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * The longs to map (or, for a StateWriter, buffer) at a time for a record size: a whole
+	 * number of records, about WINDOW_BYTES
+	 *
+	 * @param stride the longs in a record
+	 * @return the window size in longs
+	 */
+	static int windowLongs(int stride) {
+		return Math.max(1, WINDOW_BYTES/(8*stride))*stride;
+	}
+
+	/**
+	 * Map the next window of the file, just past the records read so far
+	 */
+	private void map() {
+		long longs = Math.min(window, (count-read)*stride);
+		try {
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 8L*stride*read, 8L*longs);
+			buffer = bytes.order(ByteOrder.nativeOrder()).asLongBuffer();
+		} catch (IOException e) {
+			throw new SokobanException("cannot read "+file+": "+e);
+		}
+	}
+
+	private final File        file;
+	private final int         stride;
+	private final int         window; // longs mapped at a time
+	private final long[]      current;
+	private final FileChannel channel;
+	private final long        count;
+	private LongBuffer        buffer = null;
+	private long              read   = 0;
+
+	private static final int WINDOW_BYTES = 8 << 20;
+}
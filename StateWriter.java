@@ -0,0 +1,104 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * Writes fixed-size solver state records (a row of longs each) to a file, one after
+ * another, collecting them in a buffer that is written to the end of the file whenever it
+ * fills.  The file is only ever as long as the records written, so it never has to be cut
+ * down, and is never mapped into memory while it is written (a mapped file cannot be cut
+ * down on every platform).  StateReader reads the records back.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+class StateWriter {
+	/**
+	 * Create (or overwrite) a file of records
+	 *
+	 * @param file the file (cannot be null)
+	 * @param stride the longs in a record (must be positive)
+	 */
+	StateWriter(File file, int stride) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		if (stride <= 0)
+			throw new IllegalArgumentException("stride must be positive");
+		this.file   = file;
+		this.stride = stride;
+		bytes       = ByteBuffer.allocateDirect(8*StateReader.windowLongs(stride)).order(ByteOrder.nativeOrder());
+		buffer      = bytes.asLongBuffer();
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		} catch (IOException e) {
+			throw new SokobanException("cannot create "+file+": "+e);
+		}
+	}
+
+	/**
+	 * Append a record
+	 *
+	 * @param data the array holding the record
+	 * @param offset the index of the record's first long in data
+	 */
+	void write(long[] data, int offset) {
+		if (buffer.remaining() < stride)
+			flush();
+		buffer.put(data, offset, stride);
+		count++;
+	}
+
+	/**
+	 * Gets the number of records written
+	 *
+	 * @return the number of records
+	 */
+	long count() {
+		return count;
+	}
+
+	/**
+	 * Gets the file being written
+	 *
+	 * @return the file
+	 */
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * Write out the records still in the buffer and close the file
+	 */
+	void close() {
+		flush();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new SokobanException("cannot close "+file+": "+e);
+		}
+	}
+
+	/**
+	 * Write the records in the buffer to the end of the file and empty the buffer
+	 */
+	private void flush() {
+		bytes.clear();
+		bytes.limit(8*buffer.position());
+		try {
+			while (bytes.hasRemaining())
+				channel.write(bytes);
+		} catch (IOException e) {
+			throw new SokobanException("cannot write "+file+": "+e);
+		}
+		buffer.clear();
+	}
+
+	private final File        file;
+	private final int         stride;
+	private final ByteBuffer  bytes;  // the records waiting to be written
+	private final LongBuffer  buffer; // the same, as longs
+	private final FileChannel channel;
+	private long              count = 0;
+}
@@ -0,0 +1,49 @@
+import java.awt.*;
+import java.util.*;
+import javax.swing.*;
+
+/**
+ * A process-wide cache of the images used to draw Sokoban tiles.  Each tile's image file
+ * is decoded once, and scaled once for each size asked for, however many cells, boards
+ * or levels use it.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class TileCache {
+	/**
+	 * Gets the icon for a tile at a given size
+	 *
+	 * @param tile the display character of the tile
+	 * @param width the width in pixels (must be positive)
+	 * @param height the height in pixels (must be positive)
+	 * @return the icon (or null if the tile has no image)
+	 */
+	public static synchronized ImageIcon getIcon(char tile, int width, int height) {
+		if ((width <= 0) || (height <= 0))
+			throw new IllegalArgumentException("invalid size "+width+"x"+height);
+		String file = FILES.get(tile);
+		if (file == null)
+			return null;
+		String    key  = tile+":"+width+"x"+height;
+		ImageIcon icon = scaled.get(key);
+		if (icon == null) {
+			Image image = originals.get(tile);
+			if (image == null) {
+				image = new ImageIcon(file).getImage();
+				originals.put(tile, image);
+			}
+			icon = new ImageIcon(image.getScaledInstance(width, height, Image.SCALE_SMOOTH));
+			scaled.put(key, icon);
+		}
+		return icon;
+	}
+
+	private static final Map<Character, String> FILES     = new HashMap<>();
+	private static final Map<Character, Image>  originals = new HashMap<>();
+	private static final Map<String, ImageIcon> scaled    = new HashMap<>();
+
+	static {
+		FILES.put(Sokoban.WALL, "images/wall.jpg");
+	}
+}
@@ -0,0 +1,283 @@
+import java.util.*;
+
+/**
+ * A transposition table of solver states held in one primitive long[] with a fixed byte
+ * budget, so a search can remember millions of states without a Java object for each.
+ * An entry is the packed state itself (the Zobrist hash, the box bitset and the
+ * normalized actor square) with the best cost (pushes) found for it, so lookups are exact:
+ * two states never share an entry just because their hashes collide.
+ * <p>
+ * The table uses open addressing: a state is looked for in a short window of slots
+ * starting from its hash.  When the window is full, the least valuable entry in it is
+ * replaced: one left from an earlier search (see newSearch) before one from this search,
+ * and then the one with the highest cost, which is the cheapest to find again.
+ * Forgetting a state never makes a search wrong, only slower, as the state may be
+ * expanded again.
+ *
+ * @author Jay Wright
+ * @version October 2026
+ */
+public class TranspositionTable {
+	/**
+	 * Constructor
+	 *
+	 * @param layout the layout of the states to be stored (cannot be null)
+	 * @param bytes the most memory the table may use in bytes (must hold at least MIN_SLOTS entries)
+	 */
+	public TranspositionTable(Layout layout, long bytes) {
+		if (layout == null)
+			throw new IllegalArgumentException("layout cannot be null");
+		if (layout.numSquares() > MAX_VALUE)
+			throw new IllegalArgumentException("layout too large for the table");
+		words  = Layout.words(layout.numSquares());
+		stride = words+2;
+		long slots = bytes/(8L*stride);
+		if (slots < MIN_SLOTS)
+			throw new IllegalArgumentException("budget too small: "+bytes+" bytes");
+		slots    = Long.highestOneBit(Math.min(slots, Integer.MAX_VALUE/stride));
+		capacity = (int) slots;
+		mask     = capacity-1;
+		table    = new long[capacity*stride];
+	}
+
+	/**
+	 * Look up the cost stored for a state
+	 *
+	 * @param hash the normalized Zobrist hash of the state
+	 * @param boxes the box bitset
+	 * @param actor the normalized actor square
+	 * @return the cost stored in this search (or NOT_FOUND)
+	 */
+	public int get(long hash, long[] boxes, int actor) {
+		int start = (int) (hash ^ (hash >>> 32)) & mask;
+		for (int i=0; i<PROBES; i++) {
+			int  base = ((start+i) & mask)*stride;
+			long meta = table[base+1];
+			if (meta == 0) {
+				misses++;
+				return NOT_FOUND;
+			}
+			if (matches(base, hash, boxes, actor)) {
+				if (generation(meta) != generation)
+					break;
+				hits++;
+				return cost(meta);
+			}
+		}
+		misses++;
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Store the cost of a state, keeping the lower cost if it is already stored
+	 *
+	 * @param hash the normalized Zobrist hash of the state
+	 * @param boxes the box bitset
+	 * @param actor the normalized actor square
+	 * @param cost the cost (from 0 to MAX_VALUE)
+	 */
+	public void put(long hash, long[] boxes, int actor, int cost) {
+		if ((cost < 0) || (cost > MAX_VALUE))
+			throw new IllegalArgumentException("invalid cost "+cost);
+		int start  = (int) (hash ^ (hash >>> 32)) & mask;
+		int victim = -1;
+		for (int i=0; i<PROBES; i++) {
+			int  base = ((start+i) & mask)*stride;
+			long meta = table[base+1];
+			if (meta == 0) {
+				write(base, hash, boxes, actor, cost);
+				size++;
+				return;
+			}
+			if (matches(base, hash, boxes, actor)) {
+				if ((cost < cost(meta)) || (generation(meta) != generation))
+					table[base+1] = pack(actor, Math.min(cost, cost(meta)));
+				return;
+			}
+			if ((victim < 0) || worth(meta) < worth(table[victim+1]))
+				victim = base;
+		}
+		write(victim, hash, boxes, actor, cost);
+		evictions++;
+	}
+
+	/**
+	 * Start a new search: entries already stored are no longer found and are the first to
+	 * be replaced, so the table is emptied without touching it (for a series of searches,
+	 * such as the iterations of IDA*)
+	 */
+	public void newSearch() {
+		generation = (generation+1) & GENERATION_MASK;
+		if (generation == 0) // wrapped around, so the oldest entries would look newest
+			clear();
+	}
+
+	/**
+	 * Forget every entry
+	 */
+	public void clear() {
+		Arrays.fill(table, 0L);
+		size       = 0;
+		generation = 0;
+	}
+
+	/**
+	 * Gets the number of entries that can be stored
+	 *
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of slots in use
+	 *
+	 * @return the number of entries
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Gets the memory used by the table
+	 *
+	 * @return the size of the table in bytes
+	 */
+	public long bytes() {
+		return 8L*table.length;
+	}
+
+	/**
+	 * Gets the number of entries replaced by other states
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Gets the fraction of lookups that found their state
+	 *
+	 * @return the hit rate (0 if there have been no lookups)
+	 */
+	public double getHitRate() {
+		return (hits+misses == 0) ? 0.0 : hits/(double) (hits+misses);
+	}
+
+	/**
+	 * A short report of the table's use
+	 *
+	 * @return the report
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d/%d entries (%d MB), hit rate %.3f, %d evicted",
+			size, capacity, bytes() >> 20, getHitRate(), evictions);
+	}
+
+	/**
+	 * Does the entry at a slot hold a state?
+	 *
+	 * @param base the index of the slot in the table
+	 * @param hash the state's hash
+	 * @param boxes the state's box bitset
+	 * @param actor the state's actor square
+	 * @return does the entry hold the state?
+	 */
+	private boolean matches(int base, long hash, long[] boxes, int actor) {
+		if ((table[base] != hash) || (actor(table[base+1]) != actor))
+			return false;
+		for (int w=0; w<words; w++)
+			if (table[base+2+w] != boxes[w])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Write an entry into a slot
+	 *
+	 * @param base the index of the slot in the table
+	 * @param hash the state's hash
+	 * @param boxes the state's box bitset
+	 * @param actor the state's actor square
+	 * @param cost the state's cost
+	 */
+	private void write(int base, long hash, long[] boxes, int actor, int cost) {
+		table[base]   = hash;
+		table[base+1] = pack(actor, cost);
+		System.arraycopy(boxes, 0, table, base+2, words);
+	}
+
+	/**
+	 * Pack an actor square and cost, with the current generation, into an entry's meta
+	 * word (never 0, which marks an empty slot)
+	 *
+	 * @param actor the actor square
+	 * @param cost the cost
+	 * @return the meta word
+	 */
+	private long pack(int actor, int cost) {
+		return OCCUPIED | ((long) generation << 48) | ((long) actor << 24) | cost;
+	}
+
+	/**
+	 * How much an entry is worth keeping: entries from this search first, then the lowest cost
+	 *
+	 * @param meta the entry's meta word
+	 * @return the worth (higher is worth more)
+	 */
+	private long worth(long meta) {
+		return ((generation(meta) == generation) ? (1L << 32) : 0L)+MAX_VALUE-cost(meta);
+	}
+
+	/**
+	 * The cost in a meta word
+	 *
+	 * @param meta the meta word
+	 * @return the cost
+	 */
+	private static int cost(long meta) {
+		return (int) (meta & MAX_VALUE);
+	}
+
+	/**
+	 * The actor square in a meta word
+	 *
+	 * @param meta the meta word
+	 * @return the actor square
+	 */
+	private static int actor(long meta) {
+		return (int) ((meta >>> 24) & MAX_VALUE);
+	}
+
+	/**
+	 * The generation in a meta word
+	 *
+	 * @param meta the meta word
+	 * @return the generation
+	 */
+	private static int generation(long meta) {
+		return (int) ((meta >>> 48) & GENERATION_MASK);
+	}
+
+	private final int    words;    // longs in a box bitset
+	private final int    stride;   // longs in an entry: hash, meta, boxes
+	private final int    capacity;
+	private final int    mask;
+	private final long[] table;
+	private int          generation = 0;
+	private long         size       = 0;
+	private long         hits       = 0;
+	private long         misses     = 0;
+	private long         evictions  = 0;
+
+	public static final int NOT_FOUND = -1;
+	public static final int MAX_VALUE = (1 << 24)-1; // the largest cost (and actor square) an entry can hold
+
+	private static final int  PROBES          = 8;  // slots searched for a state
+	private static final int  MIN_SLOTS       = 16;
+	private static final int  GENERATION_MASK = 0x3FFF;
+	private static final long OCCUPIED        = 1L << 62;
+}